@@ -19,7 +19,6 @@
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.lang3.time.FastDateFormat;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -43,7 +42,6 @@
 import org.labkey.remoteapi.CommandException;
 import org.labkey.remoteapi.CommandResponse;
 import org.labkey.remoteapi.Connection;
-import org.labkey.remoteapi.SimpleGetCommand;
 import org.labkey.remoteapi.SimplePostCommand;
 import org.labkey.remoteapi.collections.CaseInsensitiveHashMap;
 import org.labkey.remoteapi.query.ContainerFilter;
@@ -77,6 +75,7 @@
 import org.labkey.test.util.DeferredErrorCollector;
 import org.labkey.test.util.Ext4Helper;
 import org.labkey.test.util.FileBrowserHelper;
+import org.labkey.test.util.FixtureCache;
 import org.labkey.test.util.ListHelper;
 import org.labkey.test.util.Log4jUtils;
 import org.labkey.test.util.LogMethod;
@@ -84,14 +83,15 @@
 import org.labkey.test.util.PermissionsHelper;
 import org.labkey.test.util.ReadOnlyTest;
 import org.labkey.test.util.SecurityHelper;
+import org.labkey.test.util.ServerIdleWaiter;
 import org.labkey.test.util.SimpleHttpResponse;
+import org.labkey.test.util.SiteStateConfigurer;
 import org.labkey.test.util.StudyHelper;
 import org.labkey.test.util.TestLogger;
 import org.labkey.test.util.UIPermissionsHelper;
 import org.labkey.test.util.core.webdav.WebDavUploadHelper;
 import org.labkey.test.util.ext4cmp.Ext4FieldRef;
 import org.labkey.test.util.query.QueryUtils;
-import org.labkey.test.util.search.SearchAdminAPIHelper;
 import org.openqa.selenium.By;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.ElementClickInterceptedException;
@@ -492,6 +492,8 @@ protected void finished(Description description)
                 // Skip teardown if another test has already started
                 if (description.getTestClass().equals(getCurrentTestClass()))
                 {
+                    // Tests may have added a site-wide terms of use page; TestScrubber will delete it
+                    SiteStateConfigurer.invalidate(SiteStateConfigurer.SITE_TERMS_OF_USE);
                     doTearDown();
                     if (!isTestCleanupSkipped())
                     {
@@ -594,6 +596,8 @@ public void starting(Description description)
             protected void finished(Description description)
             {
                 TestLogger.resetLogger();
+                // Set again here: the test class (and its "After" context) ran on the class timeout thread
+                TestLogger.setTestLogContext("After " + description.getTestClass().getSimpleName());
                 TestLogger.log("\\\\ AfterClass Complete - " + description.getTestClass().getSimpleName() + " //");
                 TestLogger.setTestLogContext("");
             }
@@ -659,41 +663,78 @@ private void doPreamble()
             _checkedLeaksAndErrors = true;
         }
 
-        if (TestProperties.isTroubleshootingStacktracesEnabled())
-        {
-            enableTroubleshootingStacktraces();
-        }
-        setServerDebugLogging();
-        setExperimentalFlags();
+        getSiteStateConfigurer().configureSite();
 
         // Start logging JS errors.
         resumeJsErrorChecker();
 
         assertModulesAvailable(getAssociatedModules());
-        deleteSiteWideTermsOfUsePage();
-        try
-        {
-            enableEmailRecorder();
-        }
-        catch (AssumptionViolatedException | AssertionError ignore) { } // Tests should, generally, enable dumbster if they need it
-        reenableMiniProfiler = disableMiniProfiler();
 
+        cleanup(false);
+    }
+
+    /**
+     * Standard site configuration for the start of each test class. Settings that haven't changed since the previous
+     * test class are skipped, see {@link SiteStateConfigurer}.
+     */
+    private SiteStateConfigurer getSiteStateConfigurer()
+    {
+        // Connections are created up front; concurrent settings can't access the browser session
+        Connection apiConnection = WebTestHelper.getRemoteApiConnection();
+
+        SiteStateConfigurer configurer = new SiteStateConfigurer();
+        if (TestProperties.isTroubleshootingStacktracesEnabled())
+        {
+            Connection sessionConnection = createDefaultConnection();
+            configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.TROUBLESHOOTING_STACKTRACES, true,
+                    () -> enableTroubleshootingStacktraces(sessionConnection)).concurrent());
+        }
+        configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.DEBUG_LOGGING, TestProperties.getDebugLoggingPackages(),
+                this::setServerDebugLogging));
+        configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.EXPERIMENTAL_FLAGS, TestProperties.getExperimentalFeatures(),
+                this::setExperimentalFlags));
+        configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.SITE_TERMS_OF_USE, true,
+                () -> deleteSiteWideTermsOfUsePage(apiConnection)).concurrent());
+        // Tests should, generally, enable dumbster if they need it
+        configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.EMAIL_RECORDER, true,
+                () -> enableEmailRecorder(apiConnection)).concurrent().optional());
+        configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.MINI_PROFILER, false,
+                () -> reenableMiniProfiler = disableMiniProfiler()));
         if (isSystemMaintenanceDisabled())
         {
             // Disable scheduled system maintenance to prevent timeouts during nightly tests.
-            disableMaintenance();
+            configurer.add(new SiteStateConfigurer.Setting(SiteStateConfigurer.SYSTEM_MAINTENANCE, "never",
+                    this::disableMaintenance));
         }
+        return configurer;
+    }
 
-        cleanup(false);
+    private void deleteSiteWideTermsOfUsePage(Connection cn) throws IOException
+    {
+        SimplePostCommand command = new SimplePostCommand("wiki", "delete");
+        command.setParameters(Map.of("name", "_termsOfUse"));
+        try
+        {
+            command.execute(cn, "/");
+        }
+        catch (CommandException ignore) { } // Page usually doesn't exist
+    }
+
+    private void enableEmailRecorder(Connection cn) throws IOException, CommandException
+    {
+        if (TestProperties.isWithoutTestModules())
+            return;
+        SimplePostCommand command = new SimplePostCommand("dumbster", "setRecordEmail");
+        command.setParameters(Map.of("record", "true"));
+        command.execute(cn, "/");
     }
 
-    private void enableTroubleshootingStacktraces()
+    private void enableTroubleshootingStacktraces(Connection cn)
     {
         if (TestProperties.isPrimaryUserAppAdmin())
         {
             return; // app admin can't enable stack traces
         }
-        Connection cn = createDefaultConnection();
         SimplePostCommand command = new SimplePostCommand("mini-profiler", "enableTroubleshootingStacktraces");
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("enabled", true);
@@ -1273,43 +1314,22 @@ private void doPostamble()
         resetExperimentalFlags();
     }
 
+    /**
+     * Wait for pending requests, then for the search indexer, to finish
+     */
     private void waitForPendingRequests(int msWait)
     {
-        Connection connection = createDefaultConnection();
-        MutableInt pendingRequestCount = new MutableInt(-1);
-        waitFor(() -> {
-            pendingRequestCount.setValue(getPendingRequestCount(connection));
-            if (pendingRequestCount.getValue() == 0)
-            {
-                return true;
-            }
-            else
-            {
-                sleep(1000); // Don't hammer the server quite so aggressively
-                return false;
-            }
-        }, msWait);
-        if (pendingRequestCount.getValue() > 0)
-            TestLogger.log(pendingRequestCount.getValue() + " requests still pending after " + msWait + "ms");
-        if (pendingRequestCount.getValue() < 0)
-            TestLogger.log("Unable to fetch pending request count" + msWait + "ms");
+        ServerIdleWaiter idleWaiter = new ServerIdleWaiter(this::createDefaultConnection)
+                .setIndexerTimeout(Duration.ofMillis(WAIT_FOR_PAGE));
+        if (!_containerHelper.getAllModules().contains("Search"))
+            idleWaiter.withoutCondition(ServerIdleWaiter.Condition.SEARCH_INDEXER);
 
-        if (_containerHelper.getAllModules().contains("Search"))
-            SearchAdminAPIHelper.waitForIndexerBackground();
-    }
+        ServerIdleWaiter.IdleResult idleResult = idleWaiter.waitForIdle(Duration.ofMillis(msWait));
+        TestLogger.log(idleResult.toString());
 
-    private int getPendingRequestCount(Connection connection)
-    {
-        SimpleGetCommand getPendingRequestCount = new SimpleGetCommand("admin", "getPendingRequestCount");
-        try
-        {
-            CommandResponse response = getPendingRequestCount.execute(connection, null);
-            return response.getProperty("pendingRequestCount");
-        }
-        catch (IOException | CommandException e)
-        {
-            return -1;
-        }
+        ServerIdleWaiter.ConditionResult indexerResult = idleResult.getResult(ServerIdleWaiter.Condition.SEARCH_INDEXER);
+        if (indexerResult != null && !indexerResult.isSatisfied())
+            throw new RuntimeException("an error occurred while waiting for search indexing to finish: " + indexerResult, indexerResult.getError());
     }
 
     private void cleanup(boolean afterTest)
@@ -2088,6 +2108,24 @@ protected void importFolderFromZip(File folderArchive, boolean validateQueries,
         waitForPipelineJobsToComplete(completedJobs, "Folder import", expectErrors, wait);
     }
 
+    /**
+     * Create a subfolder populated from a folder archive. The archive is only imported once per server version; later
+     * calls copy a cached template project. See {@link FixtureCache} for what templates do and don't copy.
+     */
+    protected void createFolderFromCachedFolderArchive(String project, String folderName, String folderType, File folderArchive)
+    {
+        new FixtureCache(this).createFolderFromFixture(project, folderName, folderArchive, folderType, () -> importFolderFromZip(folderArchive));
+    }
+
+    /**
+     * Create a study subfolder populated from a study archive. The archive is only imported once per server version;
+     * later calls copy a cached template project. See {@link FixtureCache} for what templates do and don't copy.
+     */
+    protected void createFolderFromCachedStudyArchive(String project, String folderName, File studyArchive)
+    {
+        new FixtureCache(this).createFolderFromFixture(project, folderName, studyArchive, "Study", () -> importStudyFromZip(studyArchive));
+    }
+
     public void importFolderFromPipeline(String folderFile)
     {
         importFolderFromPipeline(folderFile, 1, true);
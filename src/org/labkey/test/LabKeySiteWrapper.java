@@ -55,17 +55,18 @@
 import org.labkey.test.pages.core.admin.ShowAdminPage;
 import org.labkey.test.pages.user.UserDetailsPage;
 import org.labkey.test.util.APIUserHelper;
-import org.labkey.test.util.DataRegionTable;
 import org.labkey.test.util.ExperimentalFeaturesHelper;
 import org.labkey.test.util.LabKeyExpectedConditions;
 import org.labkey.test.util.LogMethod;
 import org.labkey.test.util.LoggedParam;
 import org.labkey.test.util.Maps;
 import org.labkey.test.util.PasswordUtil;
+import org.labkey.test.util.PipelineJobApiHelper;
 import org.labkey.test.util.PipelineStatusTable;
 import org.labkey.test.util.PortalHelper;
 import org.labkey.test.util.SimpleHttpRequest;
 import org.labkey.test.util.SimpleHttpResponse;
+import org.labkey.test.util.SiteStateConfigurer;
 import org.labkey.test.util.TestLogger;
 import org.labkey.test.util.TextSearcher;
 import org.labkey.test.util.Timer;
@@ -87,6 +88,7 @@
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -274,6 +276,7 @@ else if (wasImpersonating || !onLabKeyPage() || isOnServerErrorPage())
     public void deleteSiteWideTermsOfUsePage()
     {
         getHttpResponse(WebTestHelper.buildURL("wiki", "delete", Maps.of("name", "_termsOfUse")), "POST").getResponseCode();
+        SiteStateConfigurer.markApplied(SiteStateConfigurer.SITE_TERMS_OF_USE, true);
     }
 
     protected void bypassSecondaryAuthentication()
@@ -516,6 +519,7 @@ protected void createDefaultStudy()
     private void waitForStartup()
     {
         Boolean hitFirstPage = null;
+        boolean serverWasDown = false;
         log("Verifying that server has started...");
         Timer startupTimer = new Timer(Duration.ofSeconds(MAX_SERVER_STARTUP_WAIT_SECONDS));
         Throwable lastError = null;
@@ -529,6 +533,7 @@ private void waitForStartup()
             {
                 // retrying
                 log("Server is not ready.  Waiting " + startupTimer.timeRemaining().getSeconds() + " more seconds...");
+                serverWasDown = true;
                 sleep(1000);
             }
             try
@@ -581,6 +586,11 @@ private void waitForStartup()
             throw new RuntimeException("Webapp failed to start up after " + MAX_SERVER_STARTUP_WAIT_SECONDS + " seconds.", lastError);
         }
         log("Server is running.");
+        if (serverWasDown)
+        {
+            // Server was (re)starting. Settings applied by previous test classes might not have survived.
+            SiteStateConfigurer.invalidateAll();
+        }
         WebTestHelper.setUseContainerRelativeUrl((Boolean)executeScript("return LABKEY.experimental.containerRelativeURL;"));
     }
 
@@ -1134,6 +1144,7 @@ protected void resetExperimentalFlags()
         TestLogger.decreaseIndent();
 
         _originalFeatureFlags = new HashMap<>();
+        SiteStateConfigurer.invalidate(SiteStateConfigurer.EXPERIMENTAL_FLAGS);
     }
 
     @LogMethod(quiet = true)
@@ -1175,6 +1186,8 @@ public boolean isMiniProfilerEnabled()
     @LogMethod
     public void setMiniProfilerEnabled(boolean enabled)
     {
+        if (enabled)
+            SiteStateConfigurer.invalidate(SiteStateConfigurer.MINI_PROFILER);
         Connection cn = createDefaultConnection();
         SimplePostCommand setEnabled = new SimplePostCommand("mini-profiler", "enable");
         JSONObject jsonObject = new JSONObject();
@@ -1473,10 +1486,29 @@ public List<String> getPipelineStatusValues()
     // Returns count of "COMPLETE" and "ERROR"
     private int getFinishedCount(List<String> statusValues)
     {
-        List<String> finishedStates = new ArrayList<>(Arrays.asList("COMPLETE", "ERROR", "CANCELLED"));
-        if (statusValues.contains("ERROR"))
-            finishedStates.add("SPLIT WAITING"); // Split jobs never "finish" if subjobs have errors
-        return (int) statusValues.stream().filter(finishedStates::contains).count();
+        return PipelineJobApiHelper.getFinishedCount(statusValues);
+    }
+
+    /**
+     * Query pipeline jobs via the remote API. Uses the container and container filter of the current page, so the
+     * results match what the StatusFiles grid would show after a refresh.
+     */
+    protected PipelineJobApiHelper getPipelineJobApiHelper()
+    {
+        PipelineJobApiHelper helper = new PipelineJobApiHelper(createDefaultConnection(), getCurrentContainerPath());
+        String containerFilterName = getUrlParam(PipelineStatusTable.REGION_NAME + ".containerFilterName");
+        if (containerFilterName != null)
+        {
+            try
+            {
+                helper.setContainerFilter(ContainerFilter.valueOf(containerFilterName));
+            }
+            catch (IllegalArgumentException ignore)
+            {
+                log("Unrecognized container filter: " + containerFilterName);
+            }
+        }
+        return helper;
     }
 
     public void waitForPipelineJobsToComplete(final int finishedJobsExpected, final boolean expectError)
@@ -1508,9 +1540,9 @@ public void waitForPipelineJobsToComplete(@LoggedParam final int finishedJobsExp
 
         if (description != null)
         {
-            DataRegionTable status = new DataRegionTable("StatusFiles", getDriver());
-            final List<String> actualDescriptions = status.getColumnDataAsText("Description");
-            if (actualDescriptions.parallelStream().noneMatch(desc -> desc.contains(description)))
+            final List<String> actualDescriptions = getPipelineJobApiHelper().getJobs().stream()
+                    .map(row -> String.valueOf(row.get("Description"))).collect(Collectors.toList());
+            if (actualDescriptions.stream().noneMatch(desc -> desc.contains(description)))
             {
                 log("WARNING: Did not find a job with expected description: " + description); // TODO: change to fail state?
             }
@@ -1523,7 +1555,7 @@ public List<String> waitForPipelineJobsToFinish(@LoggedParam int jobsExpected)
     }
 
     /**
-     * Wait until pipeline UI shows that all jobs have finished then assert the quantity
+     * Wait until all pipeline jobs in the current container have finished then assert the quantity
      * @param jobsExpected Exact number of jobs to expect
      * @param timeout {@link Duration} to wait for pipeline jobs to finish (default 10 minutes)
      * @return {@link List} of status values for all pipeline jobs
@@ -1532,49 +1564,30 @@ public List<String> waitForPipelineJobsToFinish(@LoggedParam int jobsExpected)
     private List<String> waitForPipelineJobsToFinish(@LoggedParam int jobsExpected, @LoggedParam Duration timeout)
     {
         log("Waiting for " + jobsExpected + " pipeline jobs to finish");
-        Timer timer = new Timer(timeout);
-        List<String> statusValues = waitForRunningPipelineJobs(timeout.toMillis());
-        while (statusValues.size() < jobsExpected && !timer.isTimedOut())
-        {
-            sleep(1000);
-            refresh();
-            statusValues = waitForRunningPipelineJobs(timer.timeRemaining().toMillis());
-        }
+        List<String> statusValues = waitForPipelineJobs(jobsExpected, timeout);
         assertEquals("Did not find correct number of finished pipeline jobs.", jobsExpected, getFinishedCount(statusValues));
         return statusValues;
     }
 
     /**
-     * Wait until pipeline UI shows that all jobs have finished
-     * If the timeout is exceeded and one of the pipeline jobs is in a "WAIT" state, we show the pipeline status grid
-     * filtered to ALL_FOLDERS and exclude and finished or waiting jobs to get more informative failure information
+     * Wait until all pipeline jobs in the current container have finished.
+     * Job status is polled via the 'pipeline.Job' query; the current page is refreshed once when done, if the jobs weren't
+     * already finished, so that the page reflects the final job states.
+     * If the timeout is exceeded and one of the pipeline jobs is in a "WAIT" state, we look up unfinished and non-waiting
+     * jobs in all folders to get more informative failure information
      * @param timeoutMilliseconds Maximum time to wait for pipeline jobs to finish (default 10 minutes)
      * @return {@link List} of status values for all pipeline jobs
      */
     @LogMethod
     public List<String> waitForRunningPipelineJobs(long timeoutMilliseconds)
     {
-        List<String> statusValues = getPipelineStatusValues();
-        long start = System.currentTimeMillis();
-        while (statusValues.size() > getFinishedCount(statusValues) && System.currentTimeMillis() - start < timeoutMilliseconds)
-        {
-            log("[" + StringUtils.join(statusValues,",") + "]");
-            log("Waiting for " + (statusValues.size() - getFinishedCount(statusValues)) + " job(s) to complete...");
-            sleep(1000);
-            refresh();
-            statusValues = getPipelineStatusValues();
-        }
-        log("Final: [" + StringUtils.join(statusValues,",") + "]");
+        List<String> statusValues = waitForPipelineJobs(0, Duration.ofMillis(timeoutMilliseconds));
 
         boolean waitingJobs = statusValues.stream().anyMatch(status -> status.contains("WAIT"));
         if (waitingJobs)
         {
-            log("WARNING: Pipeline appears stalled. Showing all unfinished jobs.");
-            PipelineStatusTable pipelineStatusTable = new PipelineStatusTable(this);
-            pipelineStatusTable.setContainerFilter(DataRegionTable.ContainerFilterType.ALL_FOLDERS);
-            addUrlParameter(pipelineStatusTable.getDataRegionName() + ".Status~notin=COMPLETE;CANCELLED;ERROR&" +
-                    pipelineStatusTable.getDataRegionName() + ".Status~doesnotcontain=WAIT");
-            final List<String> descriptions = pipelineStatusTable.getColumnDataAsText("Description");
+            log("WARNING: Pipeline appears stalled. Looking for unfinished jobs in all folders.");
+            final List<String> descriptions = getPipelineJobApiHelper().getBlockingJobDescriptions();
             fail("Timed out waiting for pipeline job to start. Waiting on " + (descriptions.isEmpty() ? "<unknown>" : descriptions));
         }
         assertEquals("Running pipeline jobs were found. Timeout: " + timeoutMilliseconds + "ms", 0, statusValues.size() - getFinishedCount(statusValues));
@@ -1582,6 +1595,22 @@ public List<String> waitForRunningPipelineJobs(long timeoutMilliseconds)
         return statusValues;
     }
 
+    private List<String> waitForPipelineJobs(int jobsExpected, Duration timeout)
+    {
+        PipelineJobApiHelper apiHelper = getPipelineJobApiHelper();
+        List<String> statusValues = apiHelper.getStatusValues();
+        if (statusValues.size() < jobsExpected || statusValues.size() > getFinishedCount(statusValues))
+        {
+            statusValues = apiHelper.waitForJobs(jobsExpected, timeout);
+            refresh();
+        }
+        else
+        {
+            log("Final: [" + StringUtils.join(statusValues, ",") + "]");
+        }
+        return statusValues;
+    }
+
     public List<String> waitForRunningPipelineJobs(boolean expectError, long timeoutMilliseconds)
     {
         List<String> statusValues = waitForRunningPipelineJobs(timeoutMilliseconds);
@@ -28,12 +28,14 @@
 import org.labkey.test.util.selenium.WebDriverUtils;
 import org.openqa.selenium.By;
 import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.NotFoundException;
 import org.openqa.selenium.SearchContext;
 import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.WrapsDriver;
 import org.openqa.selenium.firefox.FirefoxDriver;
@@ -390,6 +392,7 @@ public List<WebElement> findElements(SearchContext context)
         int index = 0;
         if (matchText || matchContains)
         {
+            elements = prefilterByText(context, elements, matchText ? _text : _contains);
             if (elements.size() > 10)
                 TestLogger.log(String.format("WARNING: Consider using XPath to find element(s) with text content to avoid time-consuming calls to WebElement.getText().\n" +
                         "Found %d WebElements with this Locator: %s", elements.size(), getLoggableDescription()));
@@ -431,6 +434,49 @@ public List<WebElement> findElements(SearchContext context)
         }
     }
 
+    // Removes whitespace so that block boundaries and text-transform in the rendered text don't matter
+    @Language("JavaScript")
+    private static final String TEXT_PREFILTER_SCRIPT = """
+            var normalize = function(text) { return (text || '').replace(/\\s+/g, '').toLowerCase(); };
+            var target = normalize(arguments[1]);
+            var matches = [];
+            for (var i = 0; i < arguments[0].length; i++)
+            {
+                if (normalize(arguments[0][i].textContent).indexOf(target) >= 0)
+                    matches.push(i);
+            }
+            return matches;
+            """;
+
+    /**
+     * Discard candidates that can't possibly have the specified text, using a single script call instead of calling
+     * {@link WebElement#getText()} on each one. Text content is compared loosely (ignoring case and whitespace) so
+     * that no element whose visible text matches is discarded; remaining elements still need to be checked.
+     * @return candidates whose text content contains the specified text
+     */
+    private List<WebElement> prefilterByText(SearchContext context, List<WebElement> elements, String text)
+    {
+        if (elements.size() < 2)
+            return elements;
+        if (!(WebDriverUtils.extractWrappedDriver(context) instanceof JavascriptExecutor executor))
+            return elements;
+
+        try
+        {
+            List<?> matchIndices = (List<?>) executor.executeScript(TEXT_PREFILTER_SCRIPT, elements, text);
+            List<WebElement> matches = new ArrayList<>(matchIndices.size());
+            for (Object index : matchIndices)
+            {
+                matches.add(elements.get(((Number) index).intValue()));
+            }
+            return matches;
+        }
+        catch (WebDriverException e)
+        {
+            return elements; // e.g. a stale candidate. Check them individually
+        }
+    }
+
     public boolean existsIn(SearchContext context)
     {
         return findElementOrNull(context) != null;
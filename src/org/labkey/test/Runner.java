@@ -56,11 +56,13 @@
 import org.labkey.test.util.Crawler;
 import org.labkey.test.util.DevModeOnlyTest;
 import org.labkey.test.util.ExportDiagnosticsPseudoTest;
+import org.labkey.test.util.FixtureCache;
 import org.labkey.test.util.NonWindowsTest;
 import org.labkey.test.util.PostgresOnlyTest;
 import org.labkey.test.util.SqlserverOnlyTest;
 import org.labkey.test.util.TestLogger;
 import org.labkey.test.util.Timer;
+import org.labkey.test.util.WebDriverCommandStats;
 import org.labkey.test.util.WindowsOnlyTest;
 
 import java.io.BufferedReader;
@@ -332,6 +334,7 @@ public void endTest(Test _test) { }
 
         if (_remainingTests.isEmpty())
         {
+            deleteFixtureTemplates();
             writeTimeReport();
             if (_failedTests.isEmpty() && _erroredTests.isEmpty())
             {
@@ -340,6 +343,19 @@ public void endTest(Test _test) { }
         }
     }
 
+    // Template projects are shared by all tests in the run
+    private static void deleteFixtureTemplates()
+    {
+        try
+        {
+            FixtureCache.deleteTemplates();
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("WARNING: failed to delete fixture templates: " + e.getMessage(), e);
+        }
+    }
+
     private void dumpFailures(Enumeration<TestFailure> failures)
     {
         while (failures.hasMoreElements())
@@ -683,6 +699,16 @@ private static void writeTimeReport()
                 LOG.info(" " + stat + " = " + valueStr);
             }
         }
+        File webDriverTimingReport = WebDriverCommandStats.writeReport();
+        if (webDriverTimingReport != null)
+        {
+            LOG.info("-------------------- WebDriver Commands --------------------");
+            for (String line : WebDriverCommandStats.getSummary(10))
+            {
+                LOG.info(" " + line);
+            }
+            LOG.info(" Full report: " + webDriverTimingReport.getAbsolutePath());
+        }
         Map<String, Collection<String>> actionWarnings = WebDriverWrapper.getActionWarnings();
         if (!actionWarnings.isEmpty())
         {
@@ -39,17 +39,16 @@
 import org.bouncycastle.util.io.Streams;
 import org.jetbrains.annotations.NotNull;
 import org.labkey.serverapi.writer.PrintWriters;
+import org.labkey.test.io.SampleDataIndex;
+import org.labkey.test.util.ZipUtil;
 import org.openqa.selenium.NotFoundException;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -58,6 +57,7 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.Security;
 import java.util.ArrayList;
@@ -83,6 +83,7 @@
     private static File _testRoot = null;
     private static File _modulesDir = null;
     private static Set<File> _sampledataDirs = null;
+    private static SampleDataIndex _sampleDataIndex = null;
 
     public static String getFileContents(String rootRelativePath)
     {
@@ -278,19 +279,21 @@ public static File getSampleData(String relativePath)
     @NotNull
     public static List<File> getSampleDatas(String relativePath)
     {
-        Set<File> sampledataDirs = getSampleDataDirs();
-        List<File> foundFiles = new ArrayList<>();
+        return getSampleDataIndex().find(relativePath);
+    }
 
-        for (File sampledataDir : sampledataDirs)
+    /**
+     * Index of all files in the sampledata directories. Saved in the test build directory and revalidated (by
+     * directory modification times) the first time it is used in each test run.
+     */
+    @NotNull
+    public static synchronized SampleDataIndex getSampleDataIndex()
+    {
+        if (_sampleDataIndex == null)
         {
-            File checkFile = new File(sampledataDir, relativePath);
-            if (checkFile.exists())
-            {
-                foundFiles.add(checkFile);
-            }
+            _sampleDataIndex = new SampleDataIndex(getSampleDataDirs(), new File(getTestBuildDir(), "sampledata.index"));
         }
-
-        return foundFiles;
+        return _sampleDataIndex;
     }
 
     @NotNull
@@ -517,71 +520,37 @@ public static List<String> getFilesInZipArchive(File zipArchive) throws IOExcept
         }
     }
 
-    @SuppressWarnings("Duplicates")
+    /**
+     * Extracts entries in parallel
+     * @see ZipUtil#unzip(File, File)
+     */
     public static List<File> unzipToDirectory(File sourceZip, File unzipDir) throws IOException
     {
-        List<File> files = new ArrayList<>();
-
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(sourceZip));
-             BufferedInputStream is = new BufferedInputStream(zis))
-        {
-            ZipEntry entry;
-
-            while (null != (entry = zis.getNextEntry()))
-            {
-                File destFile = new File(unzipDir, entry.getName());
-
-                if (!destFile.getCanonicalPath().startsWith(unzipDir.getCanonicalPath() + File.separator)) {
-                    throw new IOException("Zip entry is outside of the target dir: " + entry.getName());
-                }
-
-                if (entry.isDirectory())
-                {
-                    destFile.mkdirs();
-                    if (!destFile.isDirectory())
-                    {
-                        throw new IOException("Failed to create directory: " + destFile.getName());
-                    }
-                    continue;
-                }
-
-                destFile.getParentFile().mkdirs();
-                if (destFile.exists())
-                {
-                    throw new IOException("File already exists: " + destFile.getName());
-                }
-                if (!destFile.createNewFile())
-                {
-                    throw new IOException("Failed to extract file: " + destFile.getName());
-                }
-
-                try (BufferedOutputStream os = new BufferedOutputStream(new FileOutputStream(destFile)))
-                {
-                    IOUtils.copy(is, os);
-                }
-
-                files.add(destFile);
-                zis.closeEntry();
-            }
-        }
-
-        return files;
+        return ZipUtil.unzip(sourceZip, unzipDir);
     }
 
-    /** Untar an input file into an output file.
-     * The output file is created in the output folder, having the same name
-     * as the input file, minus the '.tar' extension.
+    /**
+     * Untar a gzipped tar file into an output directory. The archive is decompressed as it is read, without writing an
+     * intermediate '.tar' file.
      */
-    private static List<File> unTar(final File inputFile, final File outputDir) throws IOException, ArchiveException
+    public static List<File> extractTarGz(File archive, File destDir) throws IOException, ArchiveException
     {
+        destDir.mkdirs();
+        String destPath = destDir.getCanonicalPath();
         final List<File> untaredFiles = new ArrayList<>();
-        try (InputStream is = new FileInputStream(inputFile);
+        try (InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(archive)), 64 * 1024);
              TarArchiveInputStream inputStream = (TarArchiveInputStream) new ArchiveStreamFactory().createArchiveInputStream("tar", is))
         {
             TarArchiveEntry entry;
             while ((entry = (TarArchiveEntry) inputStream.getNextEntry()) != null)
             {
-                final File outputFile = new File(outputDir, entry.getName());
+                final File outputFile = new File(destDir, entry.getName());
+                String outputPath = outputFile.getCanonicalPath();
+                // The root entry ('./') resolves to the destination itself
+                if (!outputPath.equals(destPath) && !outputPath.startsWith(destPath + File.separator))
+                {
+                    throw new IOException("Tar entry is outside of the target dir: " + entry.getName());
+                }
                 if (entry.isDirectory())
                 {
                     if (!outputFile.exists())
@@ -594,10 +563,8 @@ private static List<File> unTar(final File inputFile, final File outputDir) thro
                 }
                 else
                 {
-                    try (OutputStream outputFileStream = new FileOutputStream(outputFile))
-                    {
-                        org.apache.commons.compress.utils.IOUtils.copy(inputStream, outputFileStream);
-                    }
+                    outputFile.getParentFile().mkdirs();
+                    Files.copy(inputStream, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 }
                 untaredFiles.add(outputFile);
             }
@@ -606,28 +573,6 @@ private static List<File> unTar(final File inputFile, final File outputDir) thro
         return untaredFiles;
     }
 
-    /**
-     * Ungzip an input file into an output file.
-     */
-    private static File unGzip(final File inputFile, final File outputDir) throws IOException
-    {
-        final File outputFile = new File(outputDir, inputFile.getName().substring(0, inputFile.getName().length() - 3));
-
-        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(inputFile));
-             FileOutputStream out = new FileOutputStream(outputFile))
-        {
-            IOUtils.copy(in, out);
-        }
-
-        return outputFile;
-    }
-
-    public static List<File> extractTarGz(File archive, File destDir) throws IOException, ArchiveException
-    {
-        destDir.mkdirs();
-        return unTar(unGzip(archive, destDir), destDir);
-    }
-
     public static byte[] decrypt(byte[] encrypted, char[] passPhrase) throws IOException, PGPException
     {
         if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
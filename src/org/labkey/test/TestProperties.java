@@ -187,6 +187,70 @@ public static Duration getCrawlerTimeout()
         }
     }
 
+    /**
+     * How long helpers may reuse server metadata (modules, container IDs) before re-fetching it.
+     * Zero disables caching.
+     */
+    public static Duration getMetadataCacheTtl()
+    {
+        try
+        {
+            return Duration.ofSeconds(Math.max(0, Integer.parseInt(System.getProperty("webtest.metadata.cache.ttl"))));
+        }
+        catch (NumberFormatException ignore)
+        {
+            return Duration.ofSeconds(60);
+        }
+    }
+
+    /**
+     * Maximum number of pooled HTTP connections shared by clients from
+     * {@link org.labkey.test.WebTestHelper#getHttpClientBuilder}. Doesn't apply to remoteapi connections.
+     */
+    public static int getHttpMaxConnections()
+    {
+        return getPositiveInt("webtest.http.maxConnections", 50);
+    }
+
+    /**
+     * Maximum number of pooled HTTP connections to one host. Tests talk to a single server, so this is effectively the
+     * number of concurrent requests that clients from {@link org.labkey.test.WebTestHelper#getHttpClientBuilder} can
+     * make without waiting for a connection.
+     */
+    public static int getHttpMaxConnectionsPerRoute()
+    {
+        return getPositiveInt("webtest.http.maxConnectionsPerRoute", 20);
+    }
+
+    private static int getPositiveInt(String property, int defaultValue)
+    {
+        try
+        {
+            return Math.max(1, Integer.parseInt(System.getProperty(property)));
+        }
+        catch (NumberFormatException ignore)
+        {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Whether to record WebDriver command latencies. See {@link org.labkey.test.util.WebDriverCommandStats}
+     */
+    public static boolean isWebDriverTimingEnabled()
+    {
+        return "true".equals(System.getProperty("webtest.webdriver.timing", "true"));
+    }
+
+    /**
+     * Whether tests may copy imported fixtures from cached template projects instead of re-importing archives.
+     * See {@link org.labkey.test.util.FixtureCache}
+     */
+    public static boolean isFixtureCacheEnabled()
+    {
+        return "true".equals(System.getProperty("webtest.fixture.cache", "true"));
+    }
+
     public static boolean isCloudPipelineEnabled()
     {
         return "true".equals(System.getProperty("use.cloud.pipeline"));
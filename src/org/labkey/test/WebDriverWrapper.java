@@ -18,7 +18,6 @@
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -118,6 +117,7 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -1544,39 +1544,20 @@ public static String encodeText(String unencodedText)
 
     public boolean isTextPresent(String... texts)
     {
-        final MutableBoolean present = new MutableBoolean(true);
-
-        TextSearcher.TextHandler handler = (htmlSource, text) -> {
-            // Not found... stop enumerating and return false
-            if (htmlSource == null || !htmlSource.contains(text))
-                present.setFalse();
-
-            return present.getValue();
-        };
         TextSearcher searcher = new TextSearcher(this);
         searcher.setSearchTransformer(TextSearcher.TextTransformers.IDENTITY);
         searcher.setSourceTransformer(TextSearcher.TextTransformers.IDENTITY);
-        searcher.searchForTexts(handler, Arrays.asList(texts));
 
-        return present.getValue();
+        return searcher.getMissingTexts(Arrays.asList(texts)).isEmpty();
     }
 
     public List<String> getTextOrder(TextSearcher searcher, String... texts)
     {
-        final List<Pair<String, Integer>> foundTexts = new ArrayList<>();
-
-        TextSearcher.TextHandler handler = (textSource, text) -> {
-            if (textSource.contains(text))
-                foundTexts.add(new ImmutablePair<>(text, textSource.indexOf(text)));
-            return true;
-        };
-
-        searcher.searchForTexts(handler, Arrays.asList(texts));
-
         List<String> orderedTexts = new ArrayList<>();
-        foundTexts.stream()
-                .sorted(Map.Entry.comparingByValue())
-                .forEachOrdered((pair) -> orderedTexts.add(pair.getKey()));
+        searcher.findTexts(Arrays.asList(texts)).stream()
+                .filter(TextSearcher.TextMatch::isFound)
+                .sorted(Comparator.comparingInt(TextSearcher.TextMatch::position))
+                .forEachOrdered(match -> orderedTexts.add(match.text()));
 
         return orderedTexts;
     }
@@ -1643,18 +1624,8 @@ public void assertTextPresentCaseInsensitive(String... texts)
      */
     public boolean isAnyTextPresent(String... texts)
     {
-        final MutableBoolean found = new MutableBoolean(false);
-
-        TextSearcher.TextHandler handler = (htmlSource, text) -> {
-            if (htmlSource.contains(text))
-                found.setTrue();
-
-            return !found.getValue(); // stop searching if any value is found
-        };
         TextSearcher searcher = new TextSearcher(this);
-        searcher.searchForTexts(handler, Arrays.asList(texts));
-
-        return found.getValue();
+        return searcher.findTexts(Arrays.asList(texts)).stream().anyMatch(TextSearcher.TextMatch::isFound);
     }
 
     /**
@@ -1791,11 +1762,13 @@ public static void assertTextNotPresent(TextSearcher searcher, String... texts)
         final int RANGE = 20;
         List<String> errors = new ArrayList<>();
 
-        TextSearcher.TextHandler handler = (htmlSource, text) -> {
-            int position = htmlSource.indexOf(text);
-
-            if (position > -1)
+        for (TextSearcher.TextMatch match : searcher.findTexts(Arrays.asList(texts)))
+        {
+            if (match.isFound())
             {
+                String htmlSource = searcher.getLastSearchedText();
+                String text = match.text();
+                int position = match.position();
                 int prefixStart = Math.max(0, position - RANGE);
                 int suffixEnd = Math.min(htmlSource.length() - 1, position + text.length() + RANGE);
                 String prefix = htmlSource.substring(prefixStart, position);
@@ -1803,11 +1776,7 @@ public static void assertTextNotPresent(TextSearcher searcher, String... texts)
 
                 errors.add("Text '" + text + "' was present: " + prefix + "[" + text + "]" + suffix);
             }
-
-            return true;
-        };
-
-        searcher.searchForTexts(handler, Arrays.asList(texts));
+        }
         Assert.assertTrue(String.join("\n", errors), errors.isEmpty());
     }
 
@@ -29,13 +29,18 @@
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
-import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
 import org.apache.hc.client5.http.ssl.TrustSelfSignedStrategy;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.config.CharCodingConfig;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.pool.PoolStats;
 import org.apache.hc.core5.ssl.SSLContextBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -83,6 +88,7 @@
 import java.util.Properties;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Static methods for getting properties of and communicating with a running LabKey server
@@ -492,6 +498,11 @@ public static Map<String, String> parseUrlQueryString(String query)
         return Collections.emptyMap();
     }
 
+    /**
+     * Creates a new remoteapi connection for the primary test user. Each connection has its own HTTP client and
+     * connection pool, separate from {@link #getHttpClientBuilder}; reuse a connection for a series of requests rather
+     * than creating one per request.
+     */
     public static Connection getRemoteApiConnection()
     {
         return getRemoteApiConnection(true);
@@ -585,7 +596,8 @@ public static HttpClientBuilder getHttpClientBuilder(String username, String pas
         return getHttpClientBuilder(username, password, requestConfigBuilder);
     }
 
-    private static final HttpClientConnectionManager SELF_SIGNED_CONNECTION_MANAGER;
+    private static final LongAdder CONNECTIONS_OPENED = new LongAdder();
+    private static final PoolingHttpClientConnectionManager SELF_SIGNED_CONNECTION_MANAGER;
 
     static
     {
@@ -594,13 +606,20 @@ public static HttpClientBuilder getHttpClientBuilder(String username, String pas
             SSLContextBuilder sslContextBuilder = new SSLContextBuilder();
             sslContextBuilder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
             SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(sslContextBuilder.build());
+            HttpConnectionFactory<ManagedHttpClientConnection> connectionFactory = ManagedHttpClientConnectionFactory.builder().charCodingConfig(
+                    CharCodingConfig.custom().setCharset(StandardCharsets.UTF_8).build()
+                ).build();
             SELF_SIGNED_CONNECTION_MANAGER = PoolingHttpClientConnectionManagerBuilder.create()
                 .setSSLSocketFactory(sslConnectionSocketFactory)
-                .setConnectionFactory(
-                    ManagedHttpClientConnectionFactory.builder().charCodingConfig(
-                        CharCodingConfig.custom().setCharset(StandardCharsets.UTF_8).build()
-                    ).build()
-                )
+                .setConnectionFactory(socket -> {
+                    CONNECTIONS_OPENED.increment();
+                    return connectionFactory.createConnection(socket);
+                })
+                .setMaxConnTotal(TestProperties.getHttpMaxConnections())
+                .setMaxConnPerRoute(TestProperties.getHttpMaxConnectionsPerRoute())
+                .setDefaultSocketConfig(SocketConfig.custom().setSoKeepAlive(true).build())
+                // Reuse the most recently released connection, so idle connections expire rather than the active ones
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
                 .build();
         }
         catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException e)
@@ -609,6 +628,29 @@ public static HttpClientBuilder getHttpClientBuilder(String username, String pas
         }
     }
 
+    /**
+     * Current state of the connection pool shared by clients from {@link #getHttpClientBuilder}.
+     * A non-zero 'pending' count means that requests are waiting for a connection; consider raising
+     * 'webtest.http.maxConnectionsPerRoute'.
+     * Doesn't include remoteapi traffic. Each remoteapi {@link Connection} has its own client and connection pool.
+     */
+    public static ConnectionPoolStats getConnectionPoolStats()
+    {
+        PoolStats stats = SELF_SIGNED_CONNECTION_MANAGER.getTotalStats();
+        return new ConnectionPoolStats(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax(), CONNECTIONS_OPENED.sum());
+    }
+
+    /**
+     * @param leased connections currently in use
+     * @param pending requests waiting for a connection
+     * @param available idle connections kept alive for reuse
+     * @param max maximum pool size
+     * @param opened connections opened since startup. Each one costs a TCP connect and, for https, a TLS handshake
+     */
+    public record ConnectionPoolStats(int leased, int pending, int available, int max, long opened)
+    {
+    }
+
     public static HttpClientBuilder getHttpClientBuilder(String username, String password, RequestConfig.Builder requestConfigBuilder)
     {
         URI target;
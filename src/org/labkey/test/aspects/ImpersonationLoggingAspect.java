@@ -24,8 +24,15 @@
 @Aspect
 public class ImpersonationLoggingAspect
 {
-    private static Long _startTime;
-    private static String _impersonating;
+    // Shared with threads started by the test (e.g. for timeouts), like the browser session being impersonated
+    private static final InheritableThreadLocal<Impersonation> _impersonation = new InheritableThreadLocal<>()
+    {
+        @Override
+        protected Impersonation initialValue()
+        {
+            return new Impersonation();
+        }
+    };
 
     @Pointcut(value = "execution(void impersonate*(String, ..)) && args(impersonating, ..)")
     void startImpersonation(String impersonating){}
@@ -35,39 +42,46 @@ void stopImpersonation(){}
     @Before(value = "startImpersonation(impersonating)", argNames = "impersonating")
     public void beforeImpersonation(String impersonating)
     {
-        if (_impersonating == null)
+        Impersonation state = _impersonation.get();
+        if (state.impersonating == null)
         {
             TestLogger.log(">>Impersonate - " + impersonating);
             TestLogger.increaseIndent();
 
-            _impersonating = impersonating;
-            _startTime = System.currentTimeMillis();
+            state.impersonating = impersonating;
+            state.startTime = System.currentTimeMillis();
         }
-        else if (!_impersonating.equals(impersonating))
+        else if (!state.impersonating.equals(impersonating))
         {
             TestLogger.decreaseIndent();
-            TestLogger.log("><Switch Impersonation : " + _impersonating + TestLogger.formatElapsedTime(System.currentTimeMillis() - _startTime) + " -> " + impersonating);
+            TestLogger.log("><Switch Impersonation : " + state.impersonating + TestLogger.formatElapsedTime(System.currentTimeMillis() - state.startTime) + " -> " + impersonating);
             TestLogger.increaseIndent();
 
-            _impersonating = impersonating;
-            _startTime = System.currentTimeMillis();
+            state.impersonating = impersonating;
+            state.startTime = System.currentTimeMillis();
         }
     }
 
     @AfterReturning(value = "stopImpersonation()")
     public void afterImpersonation()
     {
-        if (_startTime == null || _impersonating == null)
+        Impersonation state = _impersonation.get();
+        if (state.startTime == null || state.impersonating == null)
             return;
 
-        String impersonating = _impersonating;
+        String impersonating = state.impersonating;
 
-        String elapsedStr = TestLogger.formatElapsedTime(System.currentTimeMillis() - _startTime);
+        String elapsedStr = TestLogger.formatElapsedTime(System.currentTimeMillis() - state.startTime);
 
         TestLogger.decreaseIndent();
         TestLogger.log("<<Stop Impersonating - " + impersonating + elapsedStr);
 
-        _impersonating = null;
+        state.impersonating = null;
     }
 
+    private static class Impersonation
+    {
+        private Long startTime;
+        private String impersonating;
+    }
 }
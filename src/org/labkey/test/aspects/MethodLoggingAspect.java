@@ -30,18 +30,17 @@
 import java.io.File;
 import java.lang.annotation.Annotation;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
-import java.util.Stack;
 
 @Aspect
 public class MethodLoggingAspect
 {
-    private static Stack<Long> startTimes = new Stack<>();
-    private static Stack<String> methodStack = new Stack<>();
-    private static Stack<String> quietMethods = new Stack<>();
-    private static Stack<String> quietMethodsArgStrings = new Stack<>();
+    // Each thread has its own call stack. Worker threads start with an empty stack (and the indentation that TestLogger propagates)
+    private static final ThreadLocal<CallStack> callStack = ThreadLocal.withInitial(CallStack::new);
 
     @Pointcut(value = "execution(@org.labkey.test.util.LogMethod * *(..))")
     void loggedMethod(){}
@@ -49,11 +48,12 @@ void loggedMethod(){}
     @Before(value = "loggedMethod() && @annotation(logMethod)", argNames = "joinPoint, logMethod")
     public void beforeLoggedMethod(JoinPoint joinPoint, LogMethod logMethod)
     {
+        CallStack stack = callStack.get();
         MethodSignature signature = (MethodSignature) joinPoint.getStaticPart().getSignature();
-        String caller = methodStack.isEmpty() ? "" : methodStack.peek();
+        String caller = stack.methods.isEmpty() ? "" : stack.methods.peek();
         String method = signature.getName();
-        methodStack.push(method);
-        startTimes.push(System.currentTimeMillis());
+        stack.methods.push(method);
+        stack.startTimes.push(System.currentTimeMillis());
 
         List<Object> loggedParameters = new ArrayList<>();
         Annotation[][] annotations = signature.getMethod().getParameterAnnotations();
@@ -75,8 +75,8 @@ public void beforeLoggedMethod(JoinPoint joinPoint, LogMethod logMethod)
         if (logMethod.quiet())
         {
             TestLogger.suppressLogging(true);
-            quietMethods.add(method);
-            quietMethodsArgStrings.add(argsString);
+            stack.quietMethods.push(method);
+            stack.quietMethodsArgStrings.push(argsString);
         }
 
         if (!method.equals(caller)) // Don't double-log overloaded methods
@@ -101,19 +101,20 @@ public void afterLoggedMethodException(JoinPoint joinPoint, LogMethod logMethod,
 
     private void logMethodEnd(JoinPoint joinPoint, LogMethod logMethod, String logPrefix)
     {
-        methodStack.pop(); // Discard current method, duplicated in joinPoint
-        String caller = methodStack.isEmpty() ? "" : methodStack.peek();
-        Long elapsed = System.currentTimeMillis()-startTimes.pop();
+        CallStack stack = callStack.get();
+        stack.methods.pop(); // Discard current method, duplicated in joinPoint
+        String caller = stack.methods.isEmpty() ? "" : stack.methods.peek();
+        Long elapsed = System.currentTimeMillis()-stack.startTimes.pop();
         String method = joinPoint.getStaticPart().getSignature().getName();
 
         String argString = " done";
 
         if (logMethod.quiet())
         {
-            quietMethods.pop();
-            argString = quietMethodsArgStrings.pop();
+            stack.quietMethods.pop();
+            argString = stack.quietMethodsArgStrings.pop();
         }
-        if (quietMethods.empty())
+        if (stack.quietMethods.isEmpty())
             TestLogger.suppressLogging(false);
 
         if (!method.equals(caller)) // Don't double-log overloaded methods
@@ -211,4 +212,12 @@ else if (arg instanceof Duration)
         }
         return argString;
     }
+
+    private static class CallStack
+    {
+        private final Deque<Long> startTimes = new ArrayDeque<>();
+        private final Deque<String> methods = new ArrayDeque<>();
+        private final Deque<String> quietMethods = new ArrayDeque<>();
+        private final Deque<String> quietMethodsArgStrings = new ArrayDeque<>();
+    }
 }
@@ -26,7 +26,8 @@
 @Aspect
 public class StaleElementRetryAspect
 {
-    private static boolean retried;
+    // Shared by nested locator methods on a thread, so that only one of them retries
+    private static final ThreadLocal<Boolean> retried = ThreadLocal.withInitial(() -> false);
 
     @Pointcut(value = "execution(* org.labkey.test..*(org.labkey.test.Locator, ..))")
     void locatorMethod(){}
@@ -36,14 +37,14 @@ public Object beforeLoggedMethod(ProceedingJoinPoint joinPoint) throws Throwable
     {
         try
         {
-            retried = false;
+            retried.set(false);
             return joinPoint.proceed();
         }
         catch (StaleElementReferenceException staleElementException)
         {
-            if (!retried)
+            if (!retried.get())
             {
-                retried = true;
+                retried.set(true);
                 MethodSignature signature = (MethodSignature) joinPoint.getStaticPart().getSignature();
                 TestLogger.log("Stale Element - Retry " + signature.getMethod().getName());
                 return joinPoint.proceed();
@@ -22,30 +22,22 @@
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Aspect
 public class TestPerfAspect
 {
-    private static HashMap<String, HashMap<TestSection, Long>> _testClassMethodPerfStats = new HashMap<>();
+    private static final Map<String, Map<TestSection, Long>> _testClassMethodPerfStats = new ConcurrentHashMap<>();
 
-    private static long _startTime;
-    private static TestSection _currentSection = null;
-    private static HashMap<TestSection, Long> _methodTimes = new HashMap<>();
+    // Test classes run one at a time, but their sections run on different threads (e.g. for timeouts) and the
+    // stats are saved from the runner's thread, so the current test class's timer is shared by all threads.
+    private static volatile SectionTimer _sectionTimer = new SectionTimer();
 
     public void markSection(TestSection section)
     {
-        if (_currentSection != section)
-        {
-            if(_currentSection != null)
-            {
-                Long curMethodTime = System.currentTimeMillis() - _startTime;
-                _methodTimes.put(_currentSection, curMethodTime);
-            }
-
-            _startTime = System.currentTimeMillis();
-            _currentSection = section;
-        }
+        _sectionTimer.markSection(section);
     }
 
     /**
@@ -56,11 +48,9 @@ void startUp(){}
     @Before(value = "startUp()", argNames = "joinPoint")
     public void beforeTestClass(JoinPoint joinPoint)
     {
-        _currentSection = null;
-        _startTime = 0;
-        _methodTimes = new HashMap<>();
-
-        markSection(TestSection.BEFORE);
+        SectionTimer sectionTimer = new SectionTimer();
+        sectionTimer.markSection(TestSection.BEFORE);
+        _sectionTimer = sectionTimer;
     }
 
     /**
@@ -95,20 +85,44 @@ public void afterTestClass(JoinPoint joinPoint)
     {
         markSection(null);
 
-        _testClassMethodPerfStats.put(joinPoint.getStaticPart().getSignature().getName(), _methodTimes);
+        _testClassMethodPerfStats.put(joinPoint.getStaticPart().getSignature().getName(), _sectionTimer.getMethodTimes());
     }
 
     public static void savePerfStats(Test test)
     {
-        _testClassMethodPerfStats.put(test.toString().substring(test.toString().lastIndexOf(".") + 1), _methodTimes);
+        _testClassMethodPerfStats.put(test.toString().substring(test.toString().lastIndexOf(".") + 1), _sectionTimer.getMethodTimes());
+    }
+
+    public static Map<TestSection, Long> getPerfStats(String testName)
+    {
+        return _testClassMethodPerfStats.getOrDefault(testName, Map.of());
     }
 
-    public static HashMap<TestSection, Long> getPerfStats(String testName)
+    private static class SectionTimer
     {
-        if (_testClassMethodPerfStats.containsKey(testName))
-            return _testClassMethodPerfStats.get(testName);
-        else
-            return new HashMap<>();
+        private final Map<TestSection, Long> _methodTimes = new EnumMap<>(TestSection.class);
+        private long _startTime;
+        private TestSection _currentSection = null;
+
+        synchronized void markSection(TestSection section)
+        {
+            if (_currentSection != section)
+            {
+                if(_currentSection != null)
+                {
+                    Long curMethodTime = System.currentTimeMillis() - _startTime;
+                    _methodTimes.put(_currentSection, curMethodTime);
+                }
+
+                _startTime = System.currentTimeMillis();
+                _currentSection = section;
+            }
+        }
+
+        synchronized Map<TestSection, Long> getMethodTimes()
+        {
+            return new EnumMap<>(_methodTimes);
+        }
     }
 
     public enum TestSection
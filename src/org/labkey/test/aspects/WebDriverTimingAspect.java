@@ -0,0 +1,74 @@
+package org.labkey.test.aspects;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.labkey.test.BaseWebDriverTest;
+import org.labkey.test.util.WebDriverCommandStats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times calls to WebDriver commands made from test code and records them in {@link WebDriverCommandStats}.
+ * Call sites are woven at compile time, so this sees commands sent through our element and driver wrappers without
+ * decorating the driver (which {@link org.labkey.test.WebDriverWrapper#getDriver()} would unwrap).
+ * Only the outermost command on a thread is recorded; commands that a wrapper forwards to the element it wraps are
+ * counted once, against the code that called the wrapper.
+ */
+@Aspect
+public class WebDriverTimingAspect
+{
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+    private static final Map<JoinPoint.StaticPart, String> CALLERS = new ConcurrentHashMap<>();
+
+    @Pointcut(value = "call(* org.openqa.selenium.SearchContext.*(..)) || " +
+            "call(* org.openqa.selenium.WebDriver.*(..)) || " +
+            "call(* org.openqa.selenium.WebDriver.Navigation.*(..)) || " +
+            "call(* org.openqa.selenium.WebDriver.TargetLocator.*(..)) || " +
+            "call(* org.openqa.selenium.WebElement.*(..)) || " +
+            "call(* org.openqa.selenium.JavascriptExecutor.*(..)) || " +
+            "call(* org.openqa.selenium.TakesScreenshot.*(..)) || " +
+            "call(void org.openqa.selenium.interactions.Actions.perform())")
+    void webDriverCommand(){}
+
+    @Pointcut(value = "within(org.labkey.test..*) && !within(org.labkey.test.aspects..*)")
+    void testCode(){}
+
+    @Around(value = "webDriverCommand() && testCode()")
+    public Object timeCommand(ProceedingJoinPoint joinPoint, JoinPoint.EnclosingStaticPart enclosing) throws Throwable
+    {
+        if (!WebDriverCommandStats.isEnabled())
+            return joinPoint.proceed();
+
+        int[] depth = DEPTH.get();
+        if (depth[0] > 0)
+            return joinPoint.proceed();
+
+        depth[0]++;
+        long start = System.nanoTime();
+        try
+        {
+            return joinPoint.proceed();
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+            depth[0]--;
+            BaseWebDriverTest currentTest = BaseWebDriverTest.getCurrentTest();
+            WebDriverCommandStats.record(
+                    joinPoint.getSignature().getName(),
+                    currentTest == null ? null : currentTest.getClass().getSimpleName(),
+                    CALLERS.computeIfAbsent(enclosing, WebDriverTimingAspect::getCallerName),
+                    elapsed);
+        }
+    }
+
+    private static String getCallerName(JoinPoint.StaticPart enclosing)
+    {
+        String typeName = enclosing.getSignature().getDeclaringTypeName();
+        return typeName.substring(typeName.lastIndexOf('.') + 1) + "." + enclosing.getSignature().getName();
+    }
+}
@@ -10,6 +10,7 @@
 import org.labkey.test.components.ui.grids.ResponsiveGrid;
 import org.labkey.test.params.FieldDefinition;
 import org.labkey.test.selenium.WebElementWrapper;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
@@ -21,7 +22,6 @@
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 import static org.labkey.test.WebDriverWrapper.WAIT_FOR_JAVASCRIPT;
 
@@ -94,6 +94,12 @@ public DomainFormPanel addField(FieldDefinition fieldDefinition)
         return editField(fieldRow, fieldDefinition);
     }
 
+    /**
+     * Add fields one at a time through the designer. Tests that just need a domain with these fields should create it
+     * with {@link org.labkey.test.params.property.DomainProps#create} (e.g. a ListDefinition) or add fields with
+     * {@link org.labkey.test.util.DomainUtils#saveDomainFields} instead; they take a single request regardless of how
+     * many fields there are.
+     */
     public DomainFormPanel addFields(List<FieldDefinition> fieldDefinitions)
     {
         for (FieldDefinition fieldDefinition : fieldDefinitions)
@@ -233,6 +239,7 @@ public DomainFieldRow addField(String name)
         List<DomainFieldRow> fieldRows = elementCache().findFieldRows();
         DomainFieldRow newFieldRow = fieldRows.get(fieldRows.size() - 1);
         newFieldRow.setName(name);
+        elementCache().indexFieldName(name, fieldRows.size() - 1);
         return newFieldRow;
     }
 
@@ -254,6 +261,7 @@ public DomainFieldRow manuallyDefineFields(String name)
 
         DomainFieldRow newFieldRow = elementCache().findFieldRows().get(0);
         newFieldRow.setName(name);
+        elementCache().indexFieldName(name, 0);
         return newFieldRow;
     }
 
@@ -490,10 +498,8 @@ public DomainFormPanel setInferFieldFile(File file)
 
     public List<String> fieldNames()
     {
-        return elementCache().findFieldRows()
-                .stream()
-                .map(DomainFieldRow::getName)
-                .collect(Collectors.toList());
+        elementCache().findFieldRows();
+        return new ArrayList<>(elementCache().rowNames);
     }
 
     public String getPanelErrorText()
@@ -605,44 +611,94 @@ public void click()
         protected void clearFieldCache()
         {
             fieldRows = null;
+            rowNames.clear();
             fieldNames.clear();
+            originalFieldNames.clear();
         }
 
         // Should only modify row collections with findFieldRows() and addFieldButton.click()
         private List<DomainFieldRow> fieldRows;
-        private final Map<String, Integer> fieldNames = new TreeMap<>();
-        private final Locator rowLoc = Locator.tagWithClass("div", "domain-field-row").withoutClass("domain-floating-hdr");
+        private final List<String> rowNames = new ArrayList<>();
+        private final Map<String, Integer> fieldNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        // The first name seen for each row, kept until the cache is cleared, so that a renamed field can still be found
+        // by its original name
+        private final Map<String, Integer> originalFieldNames = new TreeMap<>();
+
+        // Finds every field row and its name with a single script execution
+        private static final String FIND_FIELD_ROWS_SCRIPT = """
+                var rows = arguments[0].querySelectorAll('div.domain-field-row:not(.domain-floating-hdr)');
+                var result = [];
+                for (var i = 0; i < rows.length; i++) {
+                    var nameInput = rows[i].querySelector('input[id*="domainpropertiesrow-name-"]');
+                    result.push([rows[i], nameInput ? nameInput.value : '']);
+                }
+                return result;""";
 
+        /**
+         * Find all field rows and index them by name. Always looks at the current DOM.
+         */
         private List<DomainFieldRow> findFieldRows()
         {
-            fieldRows = new ArrayList<>();          // this method used to cache this arraylist,
-                                                    // but it was too fragile and didn't save us much runtime
-                                                    // now we look for it when we ask for it
-            rowLoc.findElements(DomainFormPanel.this.getComponentElement())
-                    .forEach(e -> fieldRows.add(new DomainFieldRow(DomainFormPanel.this, e, getDriver())));
+            fieldRows = new ArrayList<>();
+            rowNames.clear();
+            fieldNames.clear();
+            List<?> rows = (List<?>) getWrapper().executeScript(FIND_FIELD_ROWS_SCRIPT, DomainFormPanel.this.getComponentElement());
+            for (Object row : rows)
+            {
+                List<?> rowInfo = (List<?>) row;
+                String fieldRowName = (String) rowInfo.get(1);
+                fieldRows.add(new DomainFieldRow(DomainFormPanel.this, (WebElement) rowInfo.get(0), getDriver()));
+                rowNames.add(fieldRowName);
+                indexFieldName(fieldRowName, fieldRows.size() - 1);
+            }
             return fieldRows;
         }
 
-        private DomainFieldRow findFieldRow(String name)
+        private void indexFieldName(String name, int index)
         {
-            WebDriverWrapper.waitFor(() -> !findFieldRows().isEmpty(), 1_000);
-            List<DomainFieldRow> fieldRows = findFieldRows();
-            for (int i = 0; i < fieldRows.size(); i++)
+            if (!StringUtils.trimToEmpty(name).isEmpty())
             {
-                DomainFieldRow fieldRow = fieldRows.get(i);
-                String fieldRowName = fieldRow.getName();
-                if (!fieldNames.containsValue(i) && !StringUtils.trimToEmpty(fieldRowName).isEmpty())
+                fieldNames.putIfAbsent(name, index);
+                if (!originalFieldNames.containsValue(index))
                 {
-                    fieldNames.put(fieldRowName, i);
+                    originalFieldNames.put(name, index);
                 }
-                if (name.equalsIgnoreCase(fieldRowName))
+            }
+        }
+
+        /**
+         * Find a field row using the name index. An indexed row is verified before it is returned; the index is rebuilt
+         * if rows have been added, removed, renamed, or reordered since it was built. Falls back to the name a row had
+         * when it was first seen, so a renamed field can still be found by its original name.
+         */
+        private DomainFieldRow findFieldRow(String name)
+        {
+            if (fieldRows != null)
+            {
+                Integer index = fieldNames.get(name);
+                if (index != null && index < fieldRows.size() && isRowNamed(fieldRows.get(index), name))
                 {
-                    return fieldRow;
+                    return fieldRows.get(index);
                 }
             }
-            if (!fieldNames.containsKey(name))
-                return null;
-            return fieldRows.get(fieldNames.get(name));
+
+            WebDriverWrapper.waitFor(() -> !findFieldRows().isEmpty(), 1_000);
+            Integer index = fieldNames.get(name);
+            if (index == null)
+                index = originalFieldNames.get(name); // Field may have been renamed
+            return index == null || index >= fieldRows.size() ? null : fieldRows.get(index);
+        }
+
+        private boolean isRowNamed(DomainFieldRow fieldRow, String name)
+        {
+            try
+            {
+                return name.equalsIgnoreCase(fieldRow.getName());
+            }
+            catch (StaleElementReferenceException e)
+            {
+                return false;
+            }
         }
 
         Locator.XPathLocator manuallyDefineFieldsLoc = Locator.tagWithClass("div", "domain-form-manual-btn");
@@ -20,6 +20,7 @@
 import org.labkey.test.Locator;
 import org.labkey.test.components.html.Table;
 import org.labkey.test.selenium.RefindingWebElement;
+import org.labkey.test.util.SiteStateConfigurer;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
@@ -85,6 +86,7 @@ public void startRecording()
 
     public void stopRecording()
     {
+        SiteStateConfigurer.invalidate(SiteStateConfigurer.EMAIL_RECORDER);
         getWrapper().uncheckCheckbox(Locator.checkboxByName(RECORDER_CHECKBOX_NAME));
     }
 
@@ -1,6 +1,7 @@
 package org.labkey.test.components.ui.permissions;
 
 import org.labkey.test.Locator;
+import org.labkey.test.util.PrincipalDirectory;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
@@ -36,6 +37,7 @@ public void clickDeleteEmptyGroup()
         var btn = elementCache().deleteEmptyGroupBtn();
         btn.click();
         getWrapper().shortWait().until(ExpectedConditions.stalenessOf(btn));
+        PrincipalDirectory.get().invalidateAllGroups();
     }
 
     @Override
@@ -3,6 +3,7 @@
 import org.labkey.test.Locator;
 import org.labkey.test.components.Component;
 import org.labkey.test.components.bootstrap.ModalDialog;
+import org.labkey.test.util.PrincipalDirectory;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
@@ -44,6 +45,7 @@ public void deleteUser()
         elementCache().delete.click();
         ModalDialog deleteUser = new ModalDialog.ModalDialogFinder(getDriver()).withTitle("Delete 1 User?").find();
         deleteUser.dismiss("Yes, Permanently Delete");
+        PrincipalDirectory.get().invalidateUsers();
     }
 
     @Override
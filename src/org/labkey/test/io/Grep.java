@@ -16,20 +16,53 @@
 package org.labkey.test.io;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.jetbrains.annotations.Nullable;
 import org.labkey.serverapi.reader.Readers;
+import org.labkey.test.util.TestLogger;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * Literal searches read files in large blocks and scan them for the UTF-8 bytes of the text, eight bytes at a time, and
+ * search multiple files in parallel. Files aren't memory-mapped, so searching live log files doesn't prevent them from
+ * being rolled over or deleted (on Windows, a mapped file stays locked until the mapping is garbage collected). Line numbers are counted the same way as {@link BufferedReader#readLine()}.
+ */
 public class Grep
 {
+    // Read and scanned at a time. Searches stop between windows when another thread has found a match.
+    private static final int WINDOW_SIZE = 4 * 1024 * 1024;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    // Reused for each file that a thread searches
+    private static final ThreadLocal<ByteBuffer> WINDOW = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocateDirect(WINDOW_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
     /**
      * Search files for some specified text
      * @param literalText The text to search for. Must not be multi-line
@@ -37,26 +70,263 @@
      * @return Collection of files that were found to contain the specified text and the line number where it was found
      */
     public static Map<File, Integer> grep(String literalText, File... files) throws IOException
+    {
+        return grep(literalText, Arrays.asList(files));
+    }
+
+    /**
+     * @see #grep(String, File...)
+     */
+    public static Map<File, Integer> grep(String literalText, Collection<File> files) throws IOException
+    {
+        byte[] needle = getNeedle(literalText);
+        Map<File, Integer> filesContainingSpecifiedText = new ConcurrentHashMap<>();
+        searchFiles(files, file -> {
+            int lineNumber = grep(file, needle, null);
+            if (lineNumber > 0)
+                filesContainingSpecifiedText.put(file, lineNumber);
+            return false;
+        });
+        return new HashMap<>(filesContainingSpecifiedText);
+    }
+
+    /**
+     * Search all files in a directory tree that match a glob
+     * @param directory root of the search
+     * @param glob pattern for files to search. See {@link #findFiles(File, String)}
+     * @see #grep(String, File...)
+     */
+    public static Map<File, Integer> grep(String literalText, File directory, String glob) throws IOException
+    {
+        return grep(literalText, findFiles(directory, glob));
+    }
+
+    /**
+     * Find any one file that contains the specified text. Stops searching all files once the text is found.
+     * If several files contain the text, which one is returned is undefined.
+     * @return a file containing the text and the line number where it was found, or null if no file contains the text
+     */
+    @Nullable
+    public static Pair<File, Integer> grepAny(String literalText, Collection<File> files) throws IOException
+    {
+        byte[] needle = getNeedle(literalText);
+        AtomicBoolean found = new AtomicBoolean();
+        Map<File, Integer> match = new ConcurrentHashMap<>();
+        searchFiles(files, file -> {
+            int lineNumber = grep(file, needle, found);
+            if (lineNumber > 0 && found.compareAndSet(false, true))
+                match.put(file, lineNumber);
+            return found.get();
+        });
+        return match.entrySet().stream().findFirst().map(e -> Pair.of(e.getKey(), e.getValue())).orElse(null);
+    }
+
+    /**
+     * Find files in a directory tree. A glob containing '/' is matched against paths relative to the directory
+     * (e.g. 'logs/**.log'); otherwise it is matched against file names (e.g. '*.log').
+     * @see FileSystems#getDefault()
+     */
+    public static List<File> findFiles(File directory, String glob) throws IOException
+    {
+        Path root = directory.toPath();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        boolean matchPath = glob.contains("/");
+        try (Stream<Path> paths = Files.walk(root))
+        {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(matchPath ? root.relativize(path) : path.getFileName()))
+                    .map(Path::toFile)
+                    .toList();
+        }
+    }
+
+    private static byte[] getNeedle(String literalText)
     {
         if (literalText.contains("\n"))
             throw new IllegalArgumentException("Can only find single lines of text");
+        if (literalText.isEmpty())
+            throw new IllegalArgumentException("Can't search for an empty string");
+        return literalText.getBytes(StandardCharsets.UTF_8);
+    }
 
-        Pattern pattern = Pattern.compile(Pattern.quote(literalText));
-        Map<File, Integer> filesContainingSpecifiedText = new HashMap<>();
-        for (File file : files)
+    /**
+     * Search files on up to one thread per processor
+     * @param search returns true to stop searching other files
+     */
+    private static void searchFiles(Collection<File> files, FileSearch search) throws IOException
+    {
+        int threadCount = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+        if (threadCount <= 1)
         {
-            int lineNumber = grep(file, pattern);
-            if (lineNumber > 0)
-                filesContainingSpecifiedText.put(file, lineNumber);
+            for (File file : files)
+            {
+                if (search.search(file))
+                    return;
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "Grep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean done = new AtomicBoolean();
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (File file : files)
+            {
+                futures.add(executor.submit(TestLogger.propagateContext(() -> {
+                    if (!done.get() && search.search(file))
+                        done.set(true);
+                    return null;
+                })));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException ioException)
+                throw ioException;
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
-        return filesContainingSpecifiedText;
     }
 
-    private static int grep(File file, Pattern pattern) throws IOException
+    /**
+     * @param stop stop searching (and return -1) if this becomes true
+     * @return line number (1-based) of the first occurrence of the needle in the file, or -1
+     */
+    private static int grep(File file, byte[] needle, @Nullable AtomicBoolean stop) throws IOException
     {
-        final List<Pair<String, Integer>> matches = findMatches(file, pattern, true);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer window = WINDOW.get();
+            int lineNumber = 1;
+            boolean afterCarriageReturn = false;
+            // Consecutive windows overlap so that a match can't be split between them
+            for (long windowStart = 0; ; windowStart += WINDOW_SIZE - needle.length + 1)
+            {
+                if (stop != null && stop.get())
+                    return -1;
+
+                int windowLength = read(channel, windowStart, window);
+                if (windowLength < needle.length)
+                    return -1;
+
+                int index = indexOf(window, windowLength, needle);
+                int end = index >= 0 ? index : windowLength - needle.length + 1; // start of the next window
+                lineNumber += countLines(window, end, afterCarriageReturn);
+                if (index >= 0)
+                    return lineNumber;
+                afterCarriageReturn = window.get(end - 1) == '\r';
+            }
+        }
+    }
+
+    /**
+     * Fill the buffer from the file, starting at 'position'. Positional reads don't depend on the channel's position.
+     * @return number of bytes read. Less than the buffer's capacity only at the end of the file
+     */
+    private static int read(FileChannel channel, long position, ByteBuffer buffer) throws IOException
+    {
+        buffer.clear();
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                break;
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Find the first byte of the needle eight bytes at a time (SWAR), then compare the rest
+     */
+    private static int indexOf(ByteBuffer buffer, int length, byte[] needle)
+    {
+        long firstBytes = (needle[0] & 0xFFL) * ONES;
+        int lastStart = length - needle.length;
+        int i = 0;
+        while (i <= lastStart)
+        {
+            int candidate;
+            if (i + Long.BYTES <= length)
+            {
+                long word = buffer.getLong(i) ^ firstBytes;
+                // High bit set for each zero byte (the lowest one is exact)
+                long zeroBytes = (word - ONES) & ~word & HIGH_BITS;
+                if (zeroBytes == 0)
+                {
+                    i += Long.BYTES;
+                    continue;
+                }
+                candidate = i + (Long.numberOfTrailingZeros(zeroBytes) >>> 3);
+            }
+            else if (buffer.get(i) == needle[0])
+            {
+                candidate = i;
+            }
+            else
+            {
+                i++;
+                continue;
+            }
+
+            if (candidate > lastStart)
+                return -1;
+            if (matchesAt(buffer, candidate, needle))
+                return candidate;
+            i = candidate + 1;
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(ByteBuffer buffer, int position, byte[] needle)
+    {
+        for (int j = 1; j < needle.length; j++)
+        {
+            if (buffer.get(position + j) != needle[j])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count line breaks ('\n', '\r\n', or '\r') before 'end'
+     * @param afterCarriageReturn whether the byte before the buffer is '\r'
+     */
+    private static int countLines(ByteBuffer buffer, int end, boolean afterCarriageReturn)
+    {
+        int lines = 0;
+        boolean previousCarriageReturn = afterCarriageReturn;
+        for (int i = 0; i < end; i++)
+        {
+            byte b = buffer.get(i);
+            // '\r\n' was already counted at the '\r'
+            if (b == '\r' || (b == '\n' && !previousCarriageReturn))
+                lines++;
+            previousCarriageReturn = b == '\r';
+        }
+        return lines;
+    }
 
-        return matches.stream().findFirst().map(Pair::getRight).orElse(-1);
+    @FunctionalInterface
+    private interface FileSearch
+    {
+        boolean search(File file) throws IOException;
     }
 
     /**
@@ -78,7 +348,8 @@ public static List<Pair<String, Integer>> findMatches(File file, Pattern pattern
 
                 if (matcher.find())
                 {
-                    matches.add(Pair.of(matcher.group(1), lineNumber));
+                    // Use the whole match for patterns without a capture group
+                    matches.add(Pair.of(matcher.group(matcher.groupCount() > 0 ? 1 : 0), lineNumber));
                     if (firstMatch)
                     {
                         return matches;
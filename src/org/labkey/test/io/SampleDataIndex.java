@@ -0,0 +1,376 @@
+package org.labkey.test.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.labkey.test.util.TestLogger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Index of every file and directory in a set of sampledata directories, keyed by path relative to its sampledata
+ * directory. Built with one parallel walk of the sampledata directories and saved to an index file so that later test
+ * runs only need to check directory modification times. A sampledata directory is walked again only if one of its
+ * directories has been modified (i.e. something in it was added, removed, or renamed) since it was indexed.
+ * <br>
+ * Lookups are a single map lookup. A relative path that exists in more than one sampledata directory maps to all of
+ * them.
+ */
+public class SampleDataIndex
+{
+    private static final Logger LOG = LogManager.getLogger(SampleDataIndex.class);
+    private static final String INDEX_VERSION = "sampledata.index v1";
+    // Directories modified this close to a walk might be modified again without changing their (coarse) mtime
+    private static final long MTIME_GRANULARITY_MS = 2_000;
+    private static final long UNVERIFIABLE = -1;
+
+    private final List<File> _sampledataDirs;
+    private final File _indexFile;
+    private final Map<String, List<File>> _index = new HashMap<>();
+
+    /**
+     * Load the index from the index file (if there is one) and walk any sampledata directories that have changed.
+     * @param sampledataDirs directories to index. Order determines the order of lookup results
+     * @param indexFile where to save the index. Not saved if null
+     */
+    public SampleDataIndex(Collection<File> sampledataDirs, File indexFile)
+    {
+        _sampledataDirs = sampledataDirs.stream().map(File::getAbsoluteFile).toList();
+        _indexFile = indexFile;
+
+        long start = System.currentTimeMillis();
+        Map<File, DirIndex> saved = load();
+        List<DirIndex> dirIndexes = new ArrayList<>();
+        List<File> stale = new ArrayList<>();
+        for (File sampledataDir : _sampledataDirs)
+        {
+            DirIndex dirIndex = saved.get(sampledataDir);
+            if (dirIndex != null && dirIndex.isCurrent())
+                dirIndexes.add(dirIndex);
+            else
+                stale.add(sampledataDir);
+        }
+
+        if (!stale.isEmpty())
+        {
+            dirIndexes.addAll(walk(stale));
+            save(dirIndexes);
+        }
+
+        Map<File, DirIndex> byDir = new HashMap<>();
+        dirIndexes.forEach(dirIndex -> byDir.put(dirIndex.root(), dirIndex));
+        for (File sampledataDir : _sampledataDirs)
+        {
+            DirIndex dirIndex = byDir.get(sampledataDir);
+            for (String relativePath : dirIndex.paths())
+            {
+                _index.computeIfAbsent(relativePath, k -> new ArrayList<>(1)).add(new File(sampledataDir, relativePath));
+            }
+        }
+        LOG.debug(String.format("Indexed %d sampledata paths (%d of %d directories walked) in %d ms",
+                _index.size(), stale.size(), _sampledataDirs.size(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * @param relativePath e.g. "lists/ListDemo.lists.zip" or "OConnor_Test.folder.zip"
+     * @return files with the relative path in all sampledata directories. Falls back to checking each sampledata
+     * directory if the path isn't in the index (e.g. paths with different casing on case-insensitive file systems)
+     */
+    @NotNull
+    public List<File> find(String relativePath)
+    {
+        String key = normalize(relativePath);
+        List<File> indexed = key == null ? null : _index.get(key);
+        if (indexed != null)
+        {
+            List<File> found = indexed.stream().filter(File::exists).toList();
+            if (!found.isEmpty())
+                return found;
+        }
+
+        List<File> found = new ArrayList<>();
+        for (File sampledataDir : _sampledataDirs)
+        {
+            File checkFile = new File(sampledataDir, relativePath);
+            if (checkFile.exists())
+            {
+                found.add(checkFile);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return relative paths that exist in more than one sampledata directory
+     */
+    public Map<String, List<File>> getAmbiguousPaths()
+    {
+        Map<String, List<File>> ambiguous = new LinkedHashMap<>();
+        _index.entrySet().stream()
+                .filter(entry -> entry.getValue().size() > 1)
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> ambiguous.put(entry.getKey(), List.copyOf(entry.getValue())));
+        return ambiguous;
+    }
+
+    // Index keys use '/' and have no leading, trailing, or repeated separators. Returns null for paths that can't be
+    // looked up directly (e.g. containing '..')
+    private static String normalize(String relativePath)
+    {
+        List<String> parts = new ArrayList<>();
+        for (String part : relativePath.replace('\\', '/').split("/"))
+        {
+            if (part.equals(".."))
+                return null;
+            if (!part.isEmpty() && !part.equals("."))
+                parts.add(part);
+        }
+        return parts.isEmpty() ? null : String.join("/", parts);
+    }
+
+    /**
+     * Walk each sampledata directory on its own thread
+     */
+    private static List<DirIndex> walk(List<File> sampledataDirs)
+    {
+        if (sampledataDirs.size() == 1)
+            return List.of(walk(sampledataDirs.get(0)));
+
+        int threadCount = Math.min(sampledataDirs.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "SampleDataIndex");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            List<Future<DirIndex>> futures = new ArrayList<>();
+            for (File sampledataDir : sampledataDirs)
+            {
+                futures.add(executor.submit(TestLogger.propagateContext(() -> walk(sampledataDir))));
+            }
+            List<DirIndex> dirIndexes = new ArrayList<>();
+            for (Future<DirIndex> future : futures)
+            {
+                dirIndexes.add(future.get());
+            }
+            return dirIndexes;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DirIndex walk(File sampledataDir)
+    {
+        Path root = sampledataDir.toPath();
+        Map<String, Long> dirMtimes = new LinkedHashMap<>();
+        List<String> paths = new ArrayList<>();
+        if (!sampledataDir.isDirectory())
+            return new DirIndex(sampledataDir, dirMtimes, paths); // Missing directories are re-checked on every load
+
+        long walkStart = System.currentTimeMillis();
+        try
+        {
+            Files.walkFileTree(root, new SimpleFileVisitor<>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                {
+                    String relativePath = toKey(root.relativize(dir));
+                    long mtime = attrs.lastModifiedTime().toMillis();
+                    dirMtimes.put(relativePath, mtime < walkStart - MTIME_GRANULARITY_MS ? mtime : UNVERIFIABLE);
+                    if (!relativePath.isEmpty())
+                        paths.add(relativePath);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                {
+                    paths.add(toKey(root.relativize(file)));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to index sampledata: " + sampledataDir, e);
+        }
+        return new DirIndex(sampledataDir, dirMtimes, paths);
+    }
+
+    private static String toKey(Path relativePath)
+    {
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+
+    /*
+     * Index file format:
+     *   sampledata.index v1
+     *   R <sampledata dir>
+     *   D <mtime> <relative dir>   (one per directory, including the sampledata directory itself with an empty path)
+     *   F <relative path>          (one per file or directory)
+     */
+    private Map<File, DirIndex> load()
+    {
+        Map<File, DirIndex> saved = new HashMap<>();
+        if (_indexFile == null || !_indexFile.isFile())
+            return saved;
+
+        try (BufferedReader reader = Files.newBufferedReader(_indexFile.toPath(), StandardCharsets.UTF_8))
+        {
+            if (!INDEX_VERSION.equals(reader.readLine()))
+                return saved;
+
+            DirIndex current = null;
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                switch (line.charAt(0))
+                {
+                    case 'R' -> {
+                        current = new DirIndex(new File(line.substring(2)), new LinkedHashMap<>(), new ArrayList<>());
+                        saved.put(current.root(), current);
+                    }
+                    case 'D' -> {
+                        int split = line.indexOf(' ', 2);
+                        current.dirMtimes().put(line.substring(split + 1), Long.parseLong(line.substring(2, split)));
+                    }
+                    case 'F' -> current.paths().add(line.substring(2));
+                    default -> throw new IOException("Unexpected line: " + line);
+                }
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOG.warn("Ignoring unreadable sampledata index: " + _indexFile, e);
+            saved.clear();
+        }
+        return saved;
+    }
+
+    private void save(List<DirIndex> dirIndexes)
+    {
+        if (_indexFile == null || !_indexFile.getParentFile().isDirectory())
+            return;
+
+        // Write to a temp file and move it, so that concurrent test runs never see a partial index
+        Path tempFile = null;
+        try
+        {
+            tempFile = Files.createTempFile(_indexFile.getParentFile().toPath(), _indexFile.getName(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))
+            {
+                writer.write(INDEX_VERSION);
+                writer.newLine();
+                for (DirIndex dirIndex : dirIndexes)
+                {
+                    writer.write("R " + dirIndex.root().getPath());
+                    writer.newLine();
+                    for (Map.Entry<String, Long> dirMtime : dirIndex.dirMtimes().entrySet())
+                    {
+                        writer.write("D " + dirMtime.getValue() + " " + dirMtime.getKey());
+                        writer.newLine();
+                    }
+                    for (String path : dirIndex.paths())
+                    {
+                        writer.write("F " + path);
+                        writer.newLine();
+                    }
+                }
+            }
+            try
+            {
+                Files.move(tempFile, _indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile, _indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Unable to save sampledata index: " + _indexFile, e);
+        }
+        finally
+        {
+            if (tempFile != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(tempFile); // Only still there if the move failed
+                }
+                catch (IOException e)
+                {
+                    LOG.warn("Unable to delete temporary sampledata index: " + tempFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param dirMtimes modification time of every directory under the root, keyed by relative path
+     * @param paths relative paths of every file and directory under the root
+     */
+    private record DirIndex(File root, Map<String, Long> dirMtimes, List<String> paths)
+    {
+        /**
+         * Adding, removing, or renaming an entry changes the modification time of its parent directory
+         */
+        boolean isCurrent()
+        {
+            if (dirMtimes.isEmpty())
+                return false;
+
+            try
+            {
+                for (Map.Entry<String, Long> dirMtime : dirMtimes.entrySet())
+                {
+                    if (dirMtime.getValue() == UNVERIFIABLE ||
+                            Files.getLastModifiedTime(root.toPath().resolve(dirMtime.getKey())).toMillis() != dirMtime.getValue())
+                        return false;
+                }
+                return true;
+            }
+            catch (IOException e)
+            {
+                return false; // Directory was removed
+            }
+        }
+    }
+}
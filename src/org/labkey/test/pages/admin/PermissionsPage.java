@@ -27,6 +27,7 @@
 import org.labkey.test.util.LogMethod;
 import org.labkey.test.util.LoggedParam;
 import org.labkey.test.util.PermissionsHelper.PrincipalType;
+import org.labkey.test.util.PrincipalDirectory;
 import org.labkey.test.util.ext4cmp.Ext4CmpRef;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
@@ -293,6 +294,7 @@ public PermissionsPage deleteGroup(@LoggedParam String groupName, boolean failIf
             deleteAllUsersFromGroup();
             click(Locator.xpath("//td/a/span[text()='Delete Empty Group']"));
             waitForElementToDisappear(Locator.css(".x4-grid-cell-first").withText(groupName), WAIT_FOR_JAVASCRIPT);
+            PrincipalDirectory.get().invalidateAllGroups();
         }
         return this;
     }
@@ -23,6 +23,7 @@
 import org.labkey.test.components.html.OptionSelect;
 import org.labkey.test.components.html.RadioButton;
 import org.labkey.test.pages.LabKeyPage;
+import org.labkey.test.util.SiteStateConfigurer;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
@@ -48,6 +49,7 @@ public static CustomizeSitePage beginAt(WebDriverWrapper driver)
     public ShowAdminPage save()
     {
         clickAndWait(elementCache().saveButton);
+        SiteStateConfigurer.invalidate(SiteStateConfigurer.SYSTEM_MAINTENANCE);
 
         return new ShowAdminPage(getDriver());
     }
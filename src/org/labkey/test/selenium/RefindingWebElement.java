@@ -26,6 +26,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.Assert.assertFalse;
 
@@ -69,6 +70,28 @@ private void assertUniqueId(WebElement el)
         assertFalse("Unable to refind element: ambiguous ID " + id + ". Fix product code or refind manually.", webPartLocator.findElements(this).size() > 1);
     }
 
+    /**
+     * Interactions use the current element without checking it first. If it has gone stale, the element is refound,
+     * refind listeners are notified, and the interaction is retried once.
+     */
+    @Override
+    protected <R> R withWrappedElement(Function<WebElement, R> action)
+    {
+        try
+        {
+            return action.apply(super.getWrappedElement());
+        }
+        catch (WebDriverException e)
+        {
+            refindIfStale(e);
+            return action.apply(super.getWrappedElement());
+        }
+    }
+
+    /**
+     * The unwrapped element is used by code that doesn't go through this wrapper (e.g. script arguments and
+     * {@link org.openqa.selenium.interactions.Actions}), so check it for staleness before handing it out.
+     */
     @Override
     public WebElement getWrappedElement()
     {
@@ -78,30 +101,35 @@ public WebElement getWrappedElement()
         }
         catch (WebDriverException e)
         {
-            boolean staleElement =
-                    // Actual stale element
-                    e instanceof StaleElementReferenceException ||
-                    // Geckodriver sometimes throws NoSuchElementException for stale elements. Check for those.
-                    e instanceof NoSuchElementException && e.getMessage().startsWith("Web element reference not seen before:") ||
-                    // Intermittent `WebDriverException`
-                    e.getMessage().startsWith("TypeError: el is undefined");
-            if (!staleElement)
-            {
-                throw e;
-            }
-            try
-            {
-                setWrappedElement(null); // Trigger refind
-                callListeners(super.getWrappedElement());
-            }
-            catch (NoSuchElementException ignore)
-            {
-                throw e;
-            }
+            refindIfStale(e);
         }
         return super.getWrappedElement();
     }
 
+    private void refindIfStale(WebDriverException e)
+    {
+        boolean staleElement =
+                // Actual stale element
+                e instanceof StaleElementReferenceException ||
+                // Geckodriver sometimes throws NoSuchElementException for stale elements. Check for those.
+                e instanceof NoSuchElementException && e.getMessage().startsWith("Web element reference not seen before:") ||
+                // Intermittent `WebDriverException`
+                e.getMessage().startsWith("TypeError: el is undefined");
+        if (!staleElement)
+        {
+            throw e;
+        }
+        try
+        {
+            setWrappedElement(null); // Trigger refind
+            callListeners(super.getWrappedElement());
+        }
+        catch (NoSuchElementException ignore)
+        {
+            throw e;
+        }
+    }
+
     public RefindingWebElement withRefindListener(Consumer<WebElement> callback)
     {
         _listeners.add(callback);
@@ -28,144 +28,163 @@
 import org.openqa.selenium.WrapsElement;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public abstract class WebElementWrapper implements WebElement, WrapsElement, Locatable
 {
     @Override
     public void click()
     {
-        getWrappedElement().click();
+        doWithWrappedElement(WebElement::click);
     }
 
     @Override
     public void submit()
     {
-        getWrappedElement().submit();
+        doWithWrappedElement(WebElement::submit);
     }
 
     @Override
     public void sendKeys(CharSequence... keysToSend)
     {
-        getWrappedElement().sendKeys(keysToSend);
+        doWithWrappedElement(el -> el.sendKeys(keysToSend));
     }
 
     @Override
     public void clear()
     {
-        getWrappedElement().clear();
+        doWithWrappedElement(WebElement::clear);
     }
 
     @Override
     public String getTagName()
     {
-        return getWrappedElement().getTagName();
+        return withWrappedElement(WebElement::getTagName);
     }
 
     @Override
     public String getAttribute(String name)
     {
-        return getWrappedElement().getAttribute(name);
+        return withWrappedElement(el -> el.getAttribute(name));
     }
 
     @Override
     public boolean isSelected()
     {
-        return getWrappedElement().isSelected();
+        return withWrappedElement(WebElement::isSelected);
     }
 
     @Override
     public boolean isEnabled()
     {
-        return getWrappedElement().isEnabled();
+        return withWrappedElement(WebElement::isEnabled);
     }
 
     @Override
     public String getText()
     {
-        return getWrappedElement().getText();
+        return withWrappedElement(WebElement::getText);
     }
 
     @Override
     public List<WebElement> findElements(By by)
     {
-        return getWrappedElement().findElements(by);
+        return withWrappedElement(el -> el.findElements(by));
     }
 
     @Override
     public WebElement findElement(By by)
     {
-        return getWrappedElement().findElement(by);
+        return withWrappedElement(el -> el.findElement(by));
     }
 
     @Override
     public boolean isDisplayed()
     {
-        return getWrappedElement().isDisplayed();
+        return withWrappedElement(WebElement::isDisplayed);
     }
 
     @Override
     public Point getLocation()
     {
-        return getWrappedElement().getLocation();
+        return withWrappedElement(WebElement::getLocation);
     }
 
     @Override
     public Dimension getSize()
     {
-        return getWrappedElement().getSize();
+        return withWrappedElement(WebElement::getSize);
     }
 
     @Override
     public String getCssValue(String propertyName)
     {
-        return getWrappedElement().getCssValue(propertyName);
+        return withWrappedElement(el -> el.getCssValue(propertyName));
     }
 
     @Override
     public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException
     {
-        return getWrappedElement().getScreenshotAs(target);
+        return withWrappedElement(el -> el.getScreenshotAs(target));
     }
 
     @Override
     public Rectangle getRect()
     {
-        return getWrappedElement().getRect();
+        return withWrappedElement(WebElement::getRect);
     }
 
     @Override
     public String getDomProperty(String name)
     {
-        return getWrappedElement().getDomProperty(name);
+        return withWrappedElement(el -> el.getDomProperty(name));
     }
 
     @Override
     public String getDomAttribute(String name)
     {
-        return getWrappedElement().getDomAttribute(name);
+        return withWrappedElement(el -> el.getDomAttribute(name));
     }
 
     @Override
     public String getAriaRole()
     {
-        return getWrappedElement().getAriaRole();
+        return withWrappedElement(WebElement::getAriaRole);
     }
 
     @Override
     public String getAccessibleName()
     {
-        return getWrappedElement().getAccessibleName();
+        return withWrappedElement(WebElement::getAccessibleName);
     }
 
     @Override
     public SearchContext getShadowRoot()
     {
-        return getWrappedElement().getShadowRoot();
+        return withWrappedElement(WebElement::getShadowRoot);
     }
 
     @Override
     public Coordinates getCoordinates()
     {
-        return ((Locatable)getWrappedElement()).getCoordinates();
+        return withWrappedElement(el -> ((Locatable) el).getCoordinates());
+    }
+
+    /**
+     * Perform an action on the wrapped element. All {@link WebElement} methods go through here, so subclasses can
+     * override this to handle failures (e.g. to refind a stale element and retry).
+     */
+    protected <R> R withWrappedElement(Function<WebElement, R> action)
+    {
+        return action.apply(getWrappedElement());
+    }
+
+    protected final void doWithWrappedElement(Consumer<WebElement> action)
+    {
+        withWrappedElement(el -> {
+            action.accept(el);
+            return null;
+        });
     }
 }
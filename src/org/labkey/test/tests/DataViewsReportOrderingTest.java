@@ -41,6 +41,7 @@
 public class DataViewsReportOrderingTest extends BaseWebDriverTest
 {
     private static final String ORIGINAL_WEBPART_TITLE = "Data Views";
+    private static final String STUDY_FOLDER = "Demo Study";
     private final PortalHelper _portalHelper = new PortalHelper(this);
 
     @Override
@@ -58,14 +59,15 @@ public static void setupProject()
 
     private void doSetup()
     {
-        _containerHelper.createProject(getProjectName(), "Study");
-        importFolderFromZip(TestFileUtils.getSampleData("studies/LabkeyDemoStudy.zip"));
+        _containerHelper.createProject(getProjectName(), "Collaboration");
+        // Only reports and their categories are needed, which a template copy includes
+        createFolderFromCachedFolderArchive(getProjectName(), STUDY_FOLDER, "Study", TestFileUtils.getSampleData("studies/LabkeyDemoStudy.zip"));
     }
 
     @Before
     public void preTest()
     {
-        goToProjectHome();
+        navigateToFolder(getProjectName(), STUDY_FOLDER);
     }
 
     @Test
@@ -107,6 +107,7 @@ else if (parentPath.equals("/"))
         try
         {
             CreateContainerResponse response = command.execute(connection, parentPath);
+            _metadataCache.invalidateContainer(response.getPath());
             if (!isWorkbook)
             {
                 String path = String.join("/", parentPath, name).replace("//", "/");
@@ -177,6 +178,11 @@ public void deleteContainer(String path, boolean failIfNotFound, int wait) throw
         {
             throw new RuntimeException("Failed to delete container: " + path, e);
         }
+        finally
+        {
+            _metadataCache.invalidateContainer(path);
+            PrincipalDirectory.get().invalidateGroups(path);
+        }
     }
 
     @Override
@@ -214,6 +220,10 @@ public void renameFolder(@LoggedParam String containerPath, @LoggedParam String
         try
         {
             SimpleHttpResponse response = simpleHttpRequest.getResponse();
+            _metadataCache.invalidateContainer(containerPath);
+            _metadataCache.invalidateContainer(expectedContainerPath);
+            PrincipalDirectory.get().invalidateGroups(containerPath);
+            PrincipalDirectory.get().invalidateGroups(expectedContainerPath);
 
             // RenameFolderAction isn't a proper API and generally won't throw an error. Need to verify rename manually.
             if (!doesContainerExist(expectedContainerPath))
@@ -264,19 +274,29 @@ public JSONObject getJsonObject()
         {
             throw new RuntimeException("Failed to move '" + containerPath + "' to '" + newParent + "'", fail);
         }
+        finally
+        {
+            _metadataCache.invalidateContainer(containerPath);
+            _metadataCache.invalidateContainer(newParent);
+        }
     }
 
+    /**
+     * Look up the entityId of a container. Cached, see {@link ContainerMetadataCache}
+     */
     public String getContainerId(String containerPath) throws CommandException
     {
-        Connection connection = WebTestHelper.getRemoteApiConnection();
+        return _metadataCache.getContainerId(containerPath, () -> {
+            Connection connection = WebTestHelper.getRemoteApiConnection();
 
-        try
-        {
-            return new GetContainersCommand().execute(connection, containerPath).getContainerId();
-        }
-        catch (IOException e)
-        {
-            throw new RuntimeException("Unable to get container ID for: " + containerPath, e);
-        }
+            try
+            {
+                return new GetContainersCommand().execute(connection, containerPath).getContainerId();
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Unable to get container ID for: " + containerPath, e);
+            }
+        });
     }
 }
@@ -20,7 +20,9 @@
 import org.json.JSONObject;
 import org.junit.Assert;
 import org.labkey.remoteapi.CommandException;
+import org.labkey.remoteapi.CommandResponse;
 import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.SimplePostCommand;
 import org.labkey.remoteapi.security.CreateUserCommand;
 import org.labkey.remoteapi.security.CreateUserResponse;
 import org.labkey.remoteapi.security.DeleteUserCommand;
@@ -37,6 +39,7 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -104,13 +107,52 @@ public void _setDisplayName(String email, String newDisplayName)
     public void ensureUsersExist(List<String> userEmails)
     {
         Map<String, Integer> existingUsers = getUserIds(userEmails, true);
-        for (String email : userEmails)
+        List<String> missingUsers = userEmails.stream().distinct().filter(email -> !existingUsers.containsKey(email)).toList();
+        if (!missingUsers.isEmpty())
         {
-            if (!existingUsers.containsKey(email))
+            createUsers(missingUsers);
+        }
+    }
+
+    /**
+     * Create several users with a single request. New account notifications are not sent.
+     * @return userIds of the new users, keyed by email (case-insensitive)
+     */
+    public Map<String, Integer> createUsers(List<String> userEmails)
+    {
+        JSONObject json = new JSONObject();
+        json.put("email", String.join(";", userEmails));
+        json.put("sendEmail", false);
+        json.put("skipFirstLogin", true);
+        SimplePostCommand command = new SimplePostCommand("security", "createNewUser");
+        command.setJsonObject(json);
+
+        CommandResponse response;
+        try
+        {
+            response = command.execute(connectionSupplier.get(), "");
+        }
+        catch (IOException | CommandException e)
+        {
+            throw new RuntimeException("Error while creating users: " + userEmails, e);
+        }
+
+        Map<String, Integer> userIds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<Map<String, Object>> users = response.getProperty("users");
+        if (users != null)
+        {
+            for (Map<String, Object> user : users)
             {
-                createUser(email);
+                userIds.put((String) user.get("email"), ((Number) user.get("userId")).intValue());
+                PrincipalDirectory.get().putUser((String) user.get("email"), ((Number) user.get("userId")).intValue());
             }
         }
+        List<String> notCreated = userEmails.stream().filter(email -> !userIds.containsKey(email)).toList();
+        if (!notCreated.isEmpty())
+        {
+            throw new RuntimeException("Not able to create users " + notCreated + " because " + response.getParsedData().get("htmlErrors"));
+        }
+        return userIds;
     }
 
     @Override
@@ -146,6 +188,10 @@ public JSONObject getJsonObject()
                 assertEquals(userName, response.getEmail());
                 assertNotNull("Invalid userId", response.getUserId());
             }
+            if (response.getUserId() != null)
+            {
+                PrincipalDirectory.get().putUser(response.getEmail(), response.getUserId().intValue());
+            }
 
             return response;
         }
@@ -190,6 +236,11 @@ public Map<String, Integer> getUserIds(List<String> userEmails)
 
     public Map<String, Integer> getUserIds(List<String> userEmails, boolean includeInactive)
     {
+        if (includeInactive)
+        {
+            return PrincipalDirectory.get().getUserIds(userEmails, this::loadAllUserIds);
+        }
+
         Map<String, Integer> userIds = new HashMap<>();
         List<UserInfo> usersInfo = getUsers(includeInactive).getUsersInfo();
         for (UserInfo userInfo : usersInfo)
@@ -200,6 +251,11 @@ public Map<String, Integer> getUserIds(List<String> userEmails, boolean includeI
         return userIds;
     }
 
+    private Map<String, Integer> loadAllUserIds()
+    {
+        return getUsers(true).getUsersInfo().stream().collect(Collectors.toMap(UserInfo::getEmail, UserInfo::getUserId));
+    }
+
     @Nullable
     public Integer getUserId(String userEmail)
     {
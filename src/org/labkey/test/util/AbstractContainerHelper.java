@@ -51,6 +51,7 @@
     protected BaseWebDriverTest _test;
 
     private static final Set<String> _createdProjects = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    protected static final ContainerMetadataCache _metadataCache = ContainerMetadataCache.get();
     private final Set<WebTestHelper.FolderIdentifier> _createdFolders = new HashSet<>();
 
     public AbstractContainerHelper(BaseWebDriverTest test)
@@ -79,6 +80,7 @@ public Set<WebTestHelper.FolderIdentifier> getCreatedFolders()
     public final void createProject(@LoggedParam String projectName, @Nullable String folderType)
     {
         doCreateProject(projectName, folderType);
+        _metadataCache.invalidateContainer(projectName);
         _createdProjects.add(projectName);
     }
 
@@ -124,6 +126,7 @@ public final void createSubfolder(String parentPath, String folderName)
     public final void createSubfolder(String parentPath, String folderName, String folderType)
     {
         doCreateFolder(parentPath, folderName, folderType);
+        _metadataCache.invalidateContainer(parentPath + "/" + folderName);
     }
 
     protected abstract void doCreateProject(String projectName, String folderType);
@@ -132,6 +135,7 @@ public final void createSubfolder(String parentPath, String folderName, String f
     // Projects might be created by other means
     public void addCreatedProject(String projectName)
     {
+        _metadataCache.invalidateContainer(projectName);
         _createdProjects.add(projectName);
     }
 
@@ -148,7 +152,15 @@ public void deleteProject(String project, boolean failIfNotFound) throws TestTim
     @LogMethod
     public final void deleteProject(@LoggedParam String projectName, boolean failIfNotFound, int wait) throws TestTimeoutException
     {
-        doDeleteProject(projectName, failIfNotFound, wait);
+        try
+        {
+            doDeleteProject(projectName, failIfNotFound, wait);
+        }
+        finally
+        {
+            _metadataCache.invalidateContainer(projectName);
+            PrincipalDirectory.get().invalidateGroups(projectName);
+        }
         _createdProjects.remove(projectName);
     }
 
@@ -162,11 +174,16 @@ public void setFolderType(@LoggedParam String folderType)
         _test.clickButton("Update Folder");
     }
 
+    /**
+     * @return Names of all modules installed on the server. Cached, see {@link ContainerMetadataCache}
+     */
     public Set<String> getAllModules()
     {
-        GetModulesResponse modulesResponse = getModules("home");
         Set<String> modules = Collections.newSetFromMap(new CaseInsensitiveHashMap<>());
-        modulesResponse.getModules().forEach(module -> modules.add(module.getName()));
+        modules.addAll(_metadataCache.getAllModules(() -> {
+            GetModulesResponse modulesResponse = getModules("home");
+            return modulesResponse.getModules().stream().map(GetModulesResponse.Module::getName).toList();
+        }));
         return modules;
     }
 
@@ -325,6 +342,7 @@ public void createSubfolder(@LoggedParam String project, String parent, @LoggedP
 
         SetFolderPermissionsPage setFolderPermissionsPage = createSubFolderPage.clickNext();
         _createdFolders.add(new WebTestHelper.FolderIdentifier(project, child));
+        _metadataCache.invalidateContainer(project);
 
         //second page of the wizard
         if (!inheritPermissions)
@@ -421,6 +439,7 @@ public void deleteFolder(String project, @LoggedParam String folderName, int wai
             _test.clickButton("Delete All Folders", waitTime);
         // confirm delete:
         _test.clickButton("Delete", waitTime);
+        _metadataCache.invalidateContainer(project);
         // verify that we're not on an error page with a check for a project link:
         assertTrue("Parent project does not exist after deleting folder", _test.projectMenu().projectLinkExists(project));
         _test.openFolderMenu();
@@ -443,6 +462,7 @@ public void renameFolder(String project, @LoggedParam String folderName, @Logged
             _test.uncheckCheckbox(Locator.name("addAlias"));
         // confirm rename:
         _test.clickButton("Save");
+        _metadataCache.invalidateContainer(project);
         _createdFolders.remove(new WebTestHelper.FolderIdentifier(project, folderName));
         _createdFolders.add(new WebTestHelper.FolderIdentifier(project, newFolderName));
         assertEquals("Wrong container path after rename.", expectedContainerPath, _test.getCurrentContainerPath());
@@ -470,6 +490,7 @@ public void moveFolder(@LoggedParam String projectName, @LoggedParam String fold
         _test.selectFolderTreeItem(newParent);
         // move:
         _test.clickButton("Confirm Move");
+        _metadataCache.clear();
 
         // verify that we're not on an error page with a check for folder link:
         _test.assertElementPresent(Locators.folderMenu.withText(projectName));
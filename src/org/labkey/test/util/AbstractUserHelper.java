@@ -125,7 +125,14 @@ public CreateUserResponse createUserAndNotify(String userName, boolean verifySuc
     public final void deleteUser(@LoggedParam String userEmail)
     {
         usersAndDisplayNames.remove(userEmail);
-        _deleteUser(userEmail);
+        try
+        {
+            _deleteUser(userEmail);
+        }
+        finally
+        {
+            PrincipalDirectory.get().removeUsers(List.of(userEmail));
+        }
     }
 
     @LogMethod
@@ -135,12 +142,27 @@ public final void deleteUsers(boolean failIfNotFound, @LoggedParam String... use
         {
             usersAndDisplayNames.remove(userEmail);
         }
-        _deleteUsers(failIfNotFound, userEmails);
+        try
+        {
+            _deleteUsers(failIfNotFound, userEmails);
+        }
+        finally
+        {
+            PrincipalDirectory.get().removeUsers(Arrays.asList(userEmails));
+        }
     }
 
     public final void deleteUsers(boolean failIfNotFound, TestUser... users)
     {
-        _deleteUsers(failIfNotFound, Arrays.stream(users).map(TestUser::getEmail).toArray(String[]::new));
+        String[] userEmails = Arrays.stream(users).map(TestUser::getEmail).toArray(String[]::new);
+        try
+        {
+            _deleteUsers(failIfNotFound, userEmails);
+        }
+        finally
+        {
+            PrincipalDirectory.get().removeUsers(Arrays.asList(userEmails));
+        }
     }
 
     public abstract void ensureUsersExist(List<String> userEmails);
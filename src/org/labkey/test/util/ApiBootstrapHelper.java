@@ -74,6 +74,7 @@ private void waitForStartup()
                 CommandResponse response = command.execute(cn, null);
                 if ((Boolean) response.getParsedData().getOrDefault("healthy", false))
                 {
+                    SiteStateConfigurer.invalidateAll(); // Fresh server won't have any previously applied settings
                     return;
                 }
             }
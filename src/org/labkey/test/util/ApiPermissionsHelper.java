@@ -38,6 +38,7 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -135,7 +136,8 @@ public List<String> getGroupRoles(String container, String groupName)
     @Override
     public boolean doesGroupExist(String groupName, String container)
     {
-        return getProjectGroupId(groupName, container) != null;
+        // Don't trust cached groups for existence checks
+        return PrincipalDirectory.get().refreshGroupIds(container, () -> loadProjectGroupIds(getConnection(), container)).containsKey(groupName);
     }
 
     @Override
@@ -185,7 +187,11 @@ public boolean doesUserHaveRole(String userEmail, String roleName, String contai
 
     private List<Map<String, Object>> getGroups(String container)
     {
-        Connection connection = getConnection();
+        return getGroups(getConnection(), container);
+    }
+
+    private static List<Map<String, Object>> getGroups(Connection connection, String container)
+    {
         GetGroupPermsCommand command = new GetGroupPermsCommand();
         GetGroupPermsResponse response;
         try
@@ -200,9 +206,9 @@ private List<Map<String, Object>> getGroups(String container)
         return (List) ((Map) response.getParsedData().get("container")).get("groups");
     }
 
-    private List<Map<String, Object>> getProjectGroups(String project)
+    private static List<Map<String, Object>> getProjectGroups(Connection connection, String project)
     {
-        List<Map<String, Object>> groups = new ArrayList<>(getGroups(project));
+        List<Map<String, Object>> groups = new ArrayList<>(getGroups(connection, project));
 
         if (project.isEmpty() || project.equals("/"))
             return groups;
@@ -211,21 +217,22 @@ private List<Map<String, Object>> getProjectGroups(String project)
         return groups;
     }
 
-    private List<Map<String, Object>> getSiteGroups()
+    /**
+     * Load the IDs of a project's groups, or of site groups if project is "/". Used to populate {@link PrincipalDirectory}.
+     */
+    static Map<String, Integer> loadProjectGroupIds(Connection connection, String project)
     {
-        return getGroups("/");
+        Map<String, Integer> groupIds = new HashMap<>();
+        for (Map<String, Object> group : getProjectGroups(connection, project))
+        {
+            groupIds.put((String) group.get("name"), (int) group.get("id"));
+        }
+        return groupIds;
     }
 
     private Integer getProjectGroupId(String groupName, String project)
     {
-        for (Map<String, Object> group : getProjectGroups(project))
-        {
-            if (groupName.equals(group.get("name")))
-            {
-                return (int)group.get("id");
-            }
-        }
-        return null;
+        return PrincipalDirectory.get().getGroupId(project, groupName, () -> loadProjectGroupIds(getConnection(), project));
     }
 
     private Integer getSiteGroupId(String groupName)
@@ -233,14 +240,7 @@ private Integer getSiteGroupId(String groupName)
         if ("Developers".equals(groupName))
             return -4; // Actually a role, exposed as a group -- org.labkey.api.security.Group.groupDevelopers
 
-        for (Map<String, Object> group : getSiteGroups())
-        {
-            if (groupName.equals(group.get("name")))
-            {
-                return (int)group.get("id");
-            }
-        }
-        return null;
+        return getProjectGroupId(groupName, "/");
     }
 
     public Integer getGroupId(String groupName)
@@ -253,14 +253,7 @@ public Integer getGroupId(String groupName)
 
     public Integer getUserId(String user)
     {
-        try
-        {
-            return ((Number)getUserPerms("/", user).getProperty("user.userId")).intValue();
-        }
-        catch (CommandException e)
-        {
-            return null;
-        }
+        return new APIUserHelper(_connectionSupplier).getUserId(user);
     }
 
     //TODO: Not yet implemented
@@ -448,12 +441,28 @@ public void addMemberToRole(String userOrGroupName, String permissionString, Mem
 
     public void addMemberToRole(String userOrGroupName, String permissionString, MemberType memberType, String container)
     {
-        AddAssignmentCommand command = new AddAssignmentCommand();
-        Connection connection = getConnection();
+        Integer principalId = getPrincipalId(userOrGroupName, memberType, container);
+        addRoleAssignment(principalId, toRole(permissionString), container);
+    }
 
+    public void addMemberToRoles(String userOrGroupName, List<String> permissionStrings, MemberType memberType)
+    {
+        String container = getContainerPath();
         Integer principalId = getPrincipalId(userOrGroupName, memberType, container);
+        Connection connection = getConnection();
+        permissionStrings.forEach(permissionString -> addRoleAssignment(principalId, toRole(permissionString), container, connection));
+    }
+
+    public void addRoleAssignment(Integer principalId, String roleClassName, String container)
+    {
+        addRoleAssignment(principalId, roleClassName, container, getConnection());
+    }
+
+    private void addRoleAssignment(Integer principalId, String roleClassName, String container, Connection connection)
+    {
+        AddAssignmentCommand command = new AddAssignmentCommand();
         command.setPrincipalId(principalId);
-        command.setRoleClassName(toRole(permissionString));
+        command.setRoleClassName(roleClassName);
 
         try
         {
@@ -465,9 +474,12 @@ public void addMemberToRole(String userOrGroupName, String permissionString, Mem
         }
     }
 
-    public void addMemberToRoles(String userOrGroupName, List<String> permissionStrings, MemberType memberType)
+    /**
+     * Declare users, groups, and role assignments to be created together with a minimum of requests
+     */
+    public SecurityProvisioner provisioner()
     {
-        permissionStrings.forEach(permissionString -> {addMemberToRole(userOrGroupName, permissionString, memberType);});
+        return new SecurityProvisioner(_connectionSupplier);
     }
 
     protected Integer getPrincipalId(String userOrGroupName, MemberType principalType, String project)
@@ -528,6 +540,10 @@ public void deleteGroup(String groupName, String project, boolean failIfNotFound
         {
             throw new RuntimeException(e);
         }
+        finally
+        {
+            PrincipalDirectory.get().removeGroup(isSiteGroup ? "/" : project, groupName);
+        }
     }
 
     @LogMethod (quiet = true)
@@ -538,7 +554,9 @@ public Integer createProjectGroup(@LoggedParam String groupName, @LoggedParam St
         try
         {
             Connection connection = getConnection();
-            return command.execute(connection, container).getGroupId().intValue();
+            Integer groupId = command.execute(connection, container).getGroupId().intValue();
+            PrincipalDirectory.get().putGroup(container, groupName, groupId);
+            return groupId;
         }
         catch (IOException | CommandException e)
         {
@@ -557,7 +575,9 @@ private Integer _createPermissionsGroup(@LoggedParam String groupName, @LoggedPa
         try
         {
             Connection connection = getConnection();
-            return command.execute(connection, container).getId().intValue();
+            Integer groupId = command.execute(connection, container).getId().intValue();
+            PrincipalDirectory.get().putGroup(container, groupName, groupId);
+            return groupId;
         }
         catch (IOException | CommandException e)
         {
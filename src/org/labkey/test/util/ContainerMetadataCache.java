@@ -0,0 +1,110 @@
+package org.labkey.test.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.labkey.test.TestProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suite-wide cache of server metadata that rarely changes: installed modules and container IDs.
+ * Entries expire after {@link TestProperties#getMetadataCacheTtl()}. Container helpers invalidate affected entries when
+ * they create, delete, rename, or move containers; changes made by other means may not be noticed until entries
+ * expire, so tests that do that should call {@link #clear()}.
+ * Container existence and active modules are not cached, since they are often changed outside of the helpers (e.g. by
+ * scripts, UI actions, folder type changes, and imports).
+ */
+public class ContainerMetadataCache
+{
+    private static final String ALL_MODULES_KEY = "";
+
+    private static final ContainerMetadataCache INSTANCE = new ContainerMetadataCache();
+
+    private final Map<String, Entry<?>> _allModules = new ConcurrentHashMap<>();
+    private final Map<String, Entry<?>> _containerIds = new ConcurrentHashMap<>();
+
+    private ContainerMetadataCache()
+    {
+    }
+
+    public static ContainerMetadataCache get()
+    {
+        return INSTANCE;
+    }
+
+    public <T, E extends Exception> T getAllModules(Loader<T, E> loader) throws E
+    {
+        return getOrLoad(_allModules, ALL_MODULES_KEY, loader);
+    }
+
+    public <E extends Exception> String getContainerId(String containerPath, Loader<String, E> loader) throws E
+    {
+        return getOrLoad(_containerIds, normalize(containerPath), loader);
+    }
+
+    /**
+     * Forget everything known about a container and its descendants. Use after creating, deleting, or moving it.
+     */
+    public void invalidateContainer(String containerPath)
+    {
+        String key = normalize(containerPath);
+        _containerIds.keySet().removeIf(path -> path.equals(key) || path.startsWith(key + "/"));
+    }
+
+    public void clear()
+    {
+        _allModules.clear();
+        _containerIds.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T getOrLoad(Map<String, Entry<?>> map, String key, Loader<T, E> loader) throws E
+    {
+        Duration ttl = TestProperties.getMetadataCacheTtl();
+        if (ttl.isZero())
+            return loader.load();
+
+        Entry<?> entry = map.get(key);
+        if (entry == null || entry.isExpired(ttl))
+        {
+            entry = new Entry<>(loader.load());
+            map.put(key, entry);
+        }
+        return (T) entry.getValue();
+    }
+
+    // Container paths are case-insensitive
+    private static String normalize(String containerPath)
+    {
+        return StringUtils.strip(StringUtils.trimToEmpty(containerPath), "/").toLowerCase();
+    }
+
+    @FunctionalInterface
+    public interface Loader<T, E extends Exception>
+    {
+        T load() throws E;
+    }
+
+    private static class Entry<T>
+    {
+        private final T _value;
+        private final Instant _loaded = Instant.now();
+
+        private Entry(T value)
+        {
+            _value = value;
+        }
+
+        public T getValue()
+        {
+            return _value;
+        }
+
+        public boolean isExpired(Duration ttl)
+        {
+            return Duration.between(_loaded, Instant.now()).compareTo(ttl) > 0;
+        }
+    }
+}
@@ -15,67 +15,250 @@
  */
 package org.labkey.test.util;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line-based diff. Lines are compared with leading and trailing whitespace removed. Output has one line per input
+ * line, prefixed with "&lt;" for lines only in the first input, "&gt;" for lines only in the second input, or spaces
+ * for common lines. Within each changed block, all "&lt;" lines come before all "&gt;" lines.
+ * <br>
+ * Uses Myers' O(ND) algorithm with the linear-space divide-and-conquer refinement, so memory use is proportional to
+ * the input size and run time is near-linear when the inputs are similar. The search is capped at
+ * {@link #MAX_COST} steps, which keeps large, mostly different inputs from taking quadratic time. Once the cap is
+ * reached, any part of the inputs that hasn't been matched yet is reported as one block of removed lines followed by
+ * one block of added lines; the output is still a valid diff, just not a minimal one.
+ */
 public class Diff
 {
+    private static final String COMMON = "        ";
+    private static final String REMOVED = "<       ";
+    private static final String ADDED = ">       ";
+
+    static final long MAX_COST = 50_000_000;
+
+    private long _remainingCost;
+
+    private Diff(long maxCost)
+    {
+        _remainingCost = maxCost;
+    }
 
     public static String diff(String a, String b)
     {
         return _diff(a.split("\n"), b.split("\n"));
     }
 
-
     static String _diff(String[] x, String[] y)
     {
         StringBuilder sb = new StringBuilder();
+        try
+        {
+            diff(Arrays.asList(x).iterator(), Arrays.asList(y).iterator(), sb);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e); // StringBuilder doesn't throw
+        }
+        return sb.toString();
+    }
 
-        // number of lines of each file
-        int M = x.length;
-        int N = y.length;
+    /**
+     * Diff two sequences of lines (e.g. from {@link java.io.BufferedReader#lines()}) and write the result as it is
+     * generated. Only the lines themselves are retained; no intermediate diff output is built in memory.
+     */
+    public static void diff(Iterator<String> x, Iterator<String> y, Appendable out) throws IOException
+    {
+        // Compare integer IDs of the stripped lines rather than the lines themselves
+        Map<String, Integer> lineIds = new HashMap<>();
+        List<String> xLines = new ArrayList<>();
+        List<String> yLines = new ArrayList<>();
+        int[] a = toLineIds(x, xLines, lineIds);
+        int[] b = toLineIds(y, yLines, lineIds);
+        lineIds = null; // Allow collection before diffing
 
-        // opt[i][j] = length of LCS of x[i..M] and y[j..N]
-        int[][] opt = new int[M + 1][N + 1];
+        boolean[] removed = new boolean[a.length];
+        boolean[] added = new boolean[b.length];
+        new Diff(MAX_COST).compare(a, 0, a.length, b, 0, b.length, removed, added);
 
-        // compute length of LCS and all subproblems via dynamic programming
-        for (int i = M - 1; i >= 0; i--)
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length)
         {
-            for (int j = N - 1; j >= 0; j--)
+            if (i < a.length && j < b.length && !removed[i] && !added[j])
             {
-                if (equals(x[i].strip(), y[j].strip()))
-                    opt[i][j] = opt[i + 1][j + 1] + 1;
-                else
-                    opt[i][j] = Math.max(opt[i + 1][j], opt[i][j + 1]);
+                out.append(COMMON).append(xLines.get(i++)).append("\n");
+                j++;
+            }
+            else
+            {
+                while (i < a.length && removed[i])
+                    out.append(REMOVED).append(xLines.get(i++)).append("\n");
+                while (j < b.length && added[j])
+                    out.append(ADDED).append(yLines.get(j++)).append("\n");
             }
         }
+    }
 
-        // recover LCS itself and print out non-matching lines to standard output
-        int i, j;
-        for (i=0, j=0 ; i < M && j < N ; )
+    private static int[] toLineIds(Iterator<String> lines, List<String> lineList, Map<String, Integer> lineIds)
+    {
+        while (lines.hasNext())
+            lineList.add(lines.next());
+        int[] ids = new int[lineList.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = lineIds.computeIfAbsent(lineList.get(i).strip(), k -> lineIds.size());
+        return ids;
+    }
+
+    /**
+     * Mark the lines of a[aStart, aEnd) that aren't in b[bStart, bEnd) as removed and vice versa
+     */
+    private void compare(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, boolean[] removed, boolean[] added)
+    {
+        // Trim common prefix and suffix
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart])
         {
-            if (x[i].strip().equals(y[j].strip()))
-            {
-                sb.append("        ").append(x[i]).append("\n");
-                i++;
-                j++;
-            }
-            else if (opt[i + 1][j] >= opt[i][j + 1])
-                sb.append("<       ").append(x[i++]).append("\n");
-            else
-                sb.append(">       ").append(y[j++]).append("\n");
+            aStart++;
+            bStart++;
+        }
+        while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1])
+        {
+            aEnd--;
+            bEnd--;
         }
 
-        // dump out remainder of one string if the other is exhausted
-        while (i < M || j < N)
+        if (aStart == aEnd || bStart == bEnd)
         {
-            if (i == M)
-                sb.append(">       ").append(y[j++]).append("\n");
-            else if (j == N)
-                sb.append("<       ").append(x[i++]).append("\n");
+            Arrays.fill(removed, aStart, aEnd, true);
+            Arrays.fill(added, bStart, bEnd, true);
+            return;
         }
-        return sb.toString();
+
+        int[] split = middleSnake(a, aStart, aEnd, b, bStart, bEnd);
+        if (split == null)
+        {
+            // Nothing in common, or the search was too expensive
+            Arrays.fill(removed, aStart, aEnd, true);
+            Arrays.fill(added, bStart, bEnd, true);
+            return;
+        }
+        compare(a, aStart, aStart + split[0], b, bStart, bStart + split[1], removed, added);
+        compare(a, aStart + split[0], aEnd, b, bStart + split[1], bEnd, removed, added);
     }
 
-    static boolean equals(String a, String b)
+    /**
+     * Search forward from the start and backward from the end of both ranges until the paths overlap.
+     * @return offsets into the two ranges where the shortest edit script can be split into two halves, or null if
+     * the ranges have nothing in common or the remaining cost budget runs out
+     */
+    private int[] middleSnake(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd)
     {
-        return a.hashCode()==b.hashCode() && a.equals(b);
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int maxD = (n + m + 1) / 2;
+        int vOffset = maxD;
+        int vLength = 2 * maxD + 2;
+        // Furthest reaching x on each diagonal, searching forward (v1) and backward (v2)
+        int[] v1 = new int[vLength];
+        int[] v2 = new int[vLength];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[vOffset + 1] = 0;
+        v2[vOffset + 1] = 0;
+        int delta = n - m;
+        // If the total number of lines is odd, the forward path will collide with the reverse path
+        boolean front = delta % 2 != 0;
+        // Offsets for the start and end of k loops, to skip diagonals that run off the edge of the grid
+        int k1Start = 0;
+        int k1End = 0;
+        int k2Start = 0;
+        int k2End = 0;
+        for (int d = 0; d < maxD; d++)
+        {
+            // Each round checks up to 2(d+1) diagonals
+            _remainingCost -= 2L * (d + 1);
+            if (_remainingCost < 0)
+                return null;
+
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2)
+            {
+                int k1Offset = vOffset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1]))
+                    x1 = v1[k1Offset + 1];
+                else
+                    x1 = v1[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aStart + x1] == b[bStart + y1])
+                {
+                    x1++;
+                    y1++;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n)
+                {
+                    k1End += 2; // Ran off the right of the grid
+                }
+                else if (y1 > m)
+                {
+                    k1Start += 2; // Ran off the bottom of the grid
+                }
+                else if (front)
+                {
+                    int k2Offset = vOffset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1)
+                    {
+                        // Mirror x2 onto top-left coordinate system
+                        int x2 = n - v2[k2Offset];
+                        if (x1 >= x2)
+                            return new int[]{x1, y1};
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2)
+            {
+                int k2Offset = vOffset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1]))
+                    x2 = v2[k2Offset + 1];
+                else
+                    x2 = v2[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aEnd - x2 - 1] == b[bEnd - y2 - 1])
+                {
+                    x2++;
+                    y2++;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n)
+                {
+                    k2End += 2; // Ran off the left of the grid
+                }
+                else if (y2 > m)
+                {
+                    k2Start += 2; // Ran off the top of the grid
+                }
+                else if (!front)
+                {
+                    int k1Offset = vOffset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1)
+                    {
+                        int x1 = v1[k1Offset];
+                        int y1 = vOffset + x1 - k1Offset;
+                        // Mirror x2 onto top-left coordinate system
+                        if (x1 >= n - x2)
+                            return new int[]{x1, y1};
+                    }
+                }
+            }
+        }
+        return null;
     }
 }
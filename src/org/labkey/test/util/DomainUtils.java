@@ -1,13 +1,22 @@
 package org.labkey.test.util;
 
+import org.json.JSONObject;
 import org.labkey.remoteapi.CommandException;
 import org.labkey.remoteapi.CommandResponse;
 import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.domain.Domain;
+import org.labkey.remoteapi.domain.DomainResponse;
 import org.labkey.remoteapi.domain.DropDomainCommand;
 import org.labkey.remoteapi.domain.GetDomainDetailsCommand;
+import org.labkey.remoteapi.domain.PropertyDescriptor;
+import org.labkey.remoteapi.domain.SaveDomainCommand;
 import org.labkey.test.WebTestHelper;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public final class DomainUtils
 {
@@ -74,6 +83,67 @@ public static boolean doesDomainExist(final String containerPath, final String s
 
     }
 
+    /**
+     * Add fields to an existing domain in a single request, instead of adding them one at a time in the domain designer.
+     * Fields that already exist (matched by name, case-insensitive) are updated with the requested properties. They keep
+     * their property ID and URI, so the server updates them in place rather than replacing them. Properties that the
+     * requested definition doesn't include keep their current values.
+     *
+     * @param containerPath Container where the domain exists.
+     * @param schema The schema of the domain. For example for sample types it would be 'exp.materials'.
+     * @param queryName The name of the domain's query.
+     * @param fields Field definitions. Usually a list of {@link org.labkey.test.params.FieldDefinition}.
+     * @param removeUnlisted Remove existing fields that aren't in 'fields'.
+     * @return The updated domain.
+     */
+    public static DomainResponse saveDomainFields(final String containerPath, final String schema, final String queryName,
+                                                  final List<? extends PropertyDescriptor> fields, final boolean removeUnlisted)
+            throws IOException, CommandException
+    {
+        Connection connection = WebTestHelper.getRemoteApiConnection();
+        Domain domain = new GetDomainDetailsCommand(schema, queryName).execute(connection, containerPath).getDomain();
+
+        Map<String, PropertyDescriptor> requested = new LinkedHashMap<>();
+        fields.forEach(field -> requested.put(field.getName().toLowerCase(), field));
+
+        List<PropertyDescriptor> updatedFields = new ArrayList<>();
+        int updatedCount = 0;
+        for (PropertyDescriptor existing : domain.getFields())
+        {
+            PropertyDescriptor field = requested.remove(existing.getName().toLowerCase());
+            if (field != null)
+            {
+                updatedFields.add(mergeField(existing, field));
+                updatedCount++;
+            }
+            else if (!removeUnlisted)
+            {
+                updatedFields.add(existing);
+            }
+        }
+        updatedFields.addAll(requested.values());
+        domain.setFields(updatedFields);
+
+        TestLogger.log(String.format("Saving domain '%s.%s' in '%s' with %d new and %d updated field(s)",
+                schema, queryName, containerPath, requested.size(), updatedCount));
+        SaveDomainCommand cmd = new SaveDomainCommand(schema, queryName);
+        cmd.setDomainDesign(domain);
+        return cmd.execute(connection, containerPath);
+    }
+
+    /**
+     * Apply the requested field definition to an existing field. The server matches existing fields by property ID and
+     * URI, so those are always taken from the existing field.
+     */
+    private static PropertyDescriptor mergeField(PropertyDescriptor existing, PropertyDescriptor requested)
+    {
+        JSONObject json = existing.toJSONObject();
+        requested.toJSONObject().toMap().forEach(json::put);
+        json.put("propertyId", existing.getPropertyId());
+        json.put("propertyURI", existing.getPropertyURI());
+        return new PropertyDescriptor(json);
+    }
+
     /**
      * Removes the specified domain if it exists
      */
@@ -15,6 +15,7 @@
  */
 package org.labkey.test.util;
 
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.format.CellGeneralFormatter;
 import org.apache.poi.ss.formula.FormulaParseException;
 import org.apache.poi.ss.usermodel.Cell;
@@ -51,6 +52,15 @@ public static Workbook create(File file) throws IOException
         return WorkbookFactory.create(file);
     }
 
+    /**
+     * Read an '.xlsx' file one row at a time, without loading the whole workbook into memory.
+     * Use this to verify large exports.
+     */
+    public static XlsxStreamReader createStreamReader(File file)
+    {
+        return new XlsxStreamReader(file);
+    }
+
     public static SimpleDateFormat getDateTimeFormat()
     {
         return DATE_TIME_FORMAT;
@@ -246,6 +256,16 @@ public static List<List<String>> getAllRows(Sheet sheet)
 
     public static Map<String, List<Map<String, String>>> loadData(File file)
     {
+        try
+        {
+            if (FileMagic.valueOf(file) == FileMagic.OOXML)
+                return loadXlsxData(file);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+
         try (Workbook workbook = ExcelHelper.create(file))
         {
             Map<String, List<Map<String, String>>> allData = new LinkedHashMap<>();
@@ -262,12 +282,7 @@ public static Map<String, List<Map<String, String>>> loadData(File file)
 
                 for (List<String> rawRow : rawData)
                 {
-                    Map<String, String> rowMap = new LinkedHashMap<>();
-                    for (int col = 0; col < rawRow.size(); col++)
-                    {
-                        rowMap.put(rawHeaders.get(col), rawRow.get(col));
-                    }
-                    rowMaps.add(rowMap);
+                    rowMaps.add(toRowMap(rawHeaders, rawRow));
                 }
 
                 allData.put(sheet.getSheetName(), rowMaps);
@@ -280,4 +295,34 @@ public static Map<String, List<Map<String, String>>> loadData(File file)
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Build a row map for {@link #loadData(File)}. Used for both '.xls' and '.xlsx' files so that rows have the same
+     * shape: every header is present, cells missing from the end of the row are empty strings, and cells beyond the
+     * last header are ignored.
+     */
+    static Map<String, String> toRowMap(List<String> headers, List<String> values)
+    {
+        Map<String, String> rowMap = new LinkedHashMap<>();
+        for (int col = 0; col < headers.size(); col++)
+        {
+            rowMap.put(headers.get(col), col < values.size() ? values.get(col) : "");
+        }
+        return rowMap;
+    }
+
+    // Reads rows without loading the workbook
+    private static Map<String, List<Map<String, String>>> loadXlsxData(File file) throws IOException
+    {
+        XlsxStreamReader reader = createStreamReader(file);
+        Map<String, List<Map<String, String>>> allData = new LinkedHashMap<>();
+        List<String> sheetNames = reader.getSheetNames();
+        for (int s = 0; s < sheetNames.size(); s++)
+        {
+            List<Map<String, String>> rowMaps = new ArrayList<>();
+            reader.forEachRowMap(s, rowMaps::add);
+            allData.put(sheetNames.get(s), rowMaps);
+        }
+        return allData;
+    }
 }
@@ -44,6 +44,8 @@ public static Boolean setExperimentalFeature(Connection cn, String feature, bool
             return null; // App admin can't enable/disable experimental features
 
         TestLogger.log((enable ? "Enabling" : "Disabling") + " experimental feature " + feature);
+        if (TestProperties.getExperimentalFeatures().containsKey(feature))
+            SiteStateConfigurer.invalidate(SiteStateConfigurer.EXPERIMENTAL_FLAGS);
 
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("feature", feature);
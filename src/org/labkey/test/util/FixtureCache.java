@@ -0,0 +1,259 @@
+package org.labkey.test.util;
+
+import org.jetbrains.annotations.Nullable;
+import org.labkey.remoteapi.CommandException;
+import org.labkey.remoteapi.CommandResponse;
+import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.SimpleGetCommand;
+import org.labkey.remoteapi.query.SelectRowsCommand;
+import org.labkey.remoteapi.query.SelectRowsResponse;
+import org.labkey.remoteapi.security.DeleteContainerCommand;
+import org.labkey.test.BaseWebDriverTest;
+import org.labkey.test.TestProperties;
+import org.labkey.test.WebTestHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the result of importing a folder or study archive as a template project so that later tests can copy it
+ * (via "Create From Template Folder") instead of importing the same archive again.
+ * Templates are named for a hash of the archive's content and a fingerprint of the server's installed module versions,
+ * so a modified archive or an upgraded server gets a fresh template. A template is only reused if its import job
+ * completed without errors.
+ * <br>
+ * Template projects are registered for cleanup and deleted by {@link #deleteTemplates()} when the test run finishes.
+ * Templates for other server versions are deleted the first time the cache is used.
+ * Folder templates copy folder objects (queries, views, lists, reports, study design, etc.), not everything that an
+ * import creates. Tests that depend on imported data that templates don't copy should keep importing the archive
+ * directly.
+ */
+public class FixtureCache
+{
+    public static final String TEMPLATE_PREFIX = "_FixtureTemplate_";
+
+    private static final Set<String> VERIFIED_TEMPLATES = ConcurrentHashMap.newKeySet();
+    private static final Set<String> CREATED_TEMPLATES = ConcurrentHashMap.newKeySet();
+    private static final Map<String, String> SERVER_KEYS = new ConcurrentHashMap<>();
+
+    private final BaseWebDriverTest _test;
+    private final APIContainerHelper _containerHelper;
+
+    public FixtureCache(BaseWebDriverTest test)
+    {
+        _test = test;
+        _containerHelper = new APIContainerHelper(test);
+    }
+
+    /**
+     * Create a subfolder populated from an archive. The archive is only imported the first time it is used with the
+     * current server; subsequent calls copy the resulting template project.
+     * @param project project in which to create new folder
+     * @param folderName name of folder to create
+     * @param archive folder or study archive. Used to identify the template
+     * @param folderType folder type in which the importer expects to run
+     * @param importer imports the archive into the current folder and waits for the import to finish
+     */
+    @LogMethod
+    public void createFolderFromFixture(@LoggedParam String project, @LoggedParam String folderName, @LoggedParam File archive, String folderType, Runnable importer)
+    {
+        String serverKey = TestProperties.isFixtureCacheEnabled() ? getServerKey() : null;
+        if (serverKey == null)
+        {
+            _test._containerHelper.createSubfolder(project, project, folderName, folderType, null);
+            _test.clickFolder(folderName);
+            importer.run();
+            return;
+        }
+
+        String templatePath = ensureTemplate(archive, serverKey, folderType, importer);
+        _test._containerHelper.createSubFolderFromTemplate(project, folderName, templatePath, null);
+    }
+
+    /**
+     * Get a template project populated from an archive, importing the archive first if needed.
+     * @return path of the template project
+     */
+    private String ensureTemplate(File archive, String serverKey, String folderType, Runnable importer)
+    {
+        String templateName = TEMPLATE_PREFIX + getArchiveKey(archive) + "_" + serverKey;
+        String templatePath = "/" + templateName;
+
+        if (_containerHelper.doesContainerExist(templatePath))
+        {
+            if (VERIFIED_TEMPLATES.contains(templateName) || isImportComplete(templatePath))
+            {
+                VERIFIED_TEMPLATES.add(templateName);
+                CREATED_TEMPLATES.add(templateName);
+                _test.log("Reusing fixture template for " + archive.getName() + ": " + templatePath);
+                return templatePath;
+            }
+            _test.log("Discarding incomplete fixture template: " + templatePath);
+            deleteTemplate(WebTestHelper.getRemoteApiConnection(), templateName);
+        }
+
+        _test.log("Creating fixture template for " + archive.getName() + ": " + templatePath);
+        _containerHelper.doCreateContainer("/", templateName, null, folderType, false);
+        CREATED_TEMPLATES.add(templateName);
+        try
+        {
+            _test.goToProjectHome(templateName);
+            importer.run();
+            if (!isImportComplete(templatePath))
+                throw new IllegalStateException("Import of " + archive.getName() + " into fixture template did not complete successfully: " + templatePath);
+        }
+        catch (RuntimeException | Error e)
+        {
+            deleteTemplate(WebTestHelper.getRemoteApiConnection(), templateName);
+            throw e;
+        }
+        VERIFIED_TEMPLATES.add(templateName);
+
+        return templatePath;
+    }
+
+    private static String getArchiveKey(File archive)
+    {
+        MessageDigest digest = newDigest();
+        try (InputStream in = Files.newInputStream(archive.toPath()))
+        {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to compute fixture key for " + archive, e);
+        }
+        return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+    }
+
+    /**
+     * Fingerprint of the server's installed modules and their versions, from the 'core.Modules' query. The first time
+     * the fingerprint is computed for a server, templates for other fingerprints are deleted.
+     * @return server fingerprint or null if it can't be determined, in which case fixtures shouldn't be cached
+     */
+    private @Nullable String getServerKey()
+    {
+        String baseUrl = WebTestHelper.getBaseURL();
+        String serverKey = SERVER_KEYS.get(baseUrl);
+        if (serverKey != null)
+            return serverKey;
+
+        Connection connection = WebTestHelper.getRemoteApiConnection();
+        MessageDigest digest = newDigest();
+        try
+        {
+            SelectRowsResponse response = new SelectRowsCommand("core", "Modules").execute(connection, "/");
+            response.getRows().stream()
+                    .map(row -> new TreeMap<>(row).toString())
+                    .sorted()
+                    .forEachOrdered(row -> digest.update(row.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (IOException | CommandException e)
+        {
+            _test.log("Unable to determine server version. Importing fixture without caching: " + e.getMessage());
+            return null;
+        }
+        serverKey = HexFormat.of().formatHex(digest.digest()).substring(0, 8);
+
+        for (String templateName : getTemplateProjects(connection))
+        {
+            if (!templateName.endsWith("_" + serverKey))
+            {
+                _test.log("Deleting fixture template from another server version: " + templateName);
+                deleteTemplate(connection, templateName);
+            }
+        }
+        SERVER_KEYS.put(baseUrl, serverKey);
+        return serverKey;
+    }
+
+    // Import jobs are the only pipeline jobs in a template; all of them must be complete
+    private boolean isImportComplete(String templatePath)
+    {
+        List<String> statusValues = new PipelineJobApiHelper(WebTestHelper.getRemoteApiConnection(), templatePath).getStatusValues();
+        return !statusValues.isEmpty() && statusValues.stream().allMatch("COMPLETE"::equals);
+    }
+
+    /**
+     * Delete all template projects created or used during this test run
+     */
+    public static void deleteTemplates()
+    {
+        if (CREATED_TEMPLATES.isEmpty())
+            return;
+
+        Connection connection = WebTestHelper.getRemoteApiConnection(false);
+        for (String templateName : List.copyOf(CREATED_TEMPLATES))
+        {
+            TestLogger.log("Deleting fixture template: " + templateName);
+            deleteTemplate(connection, templateName);
+        }
+    }
+
+    private static List<String> getTemplateProjects(Connection connection)
+    {
+        SimpleGetCommand command = new SimpleGetCommand("project", "getContainers");
+        command.setParameters(Map.of("includeSubfolders", true, "depth", 1));
+        try
+        {
+            CommandResponse response = command.execute(connection, "/");
+            List<Map<String, Object>> projects = response.getProperty("children");
+            return projects.stream()
+                    .map(project -> (String) project.get("name"))
+                    .filter(name -> name.startsWith(TEMPLATE_PREFIX))
+                    .toList();
+        }
+        catch (IOException | CommandException e)
+        {
+            throw new RuntimeException("Unable to list fixture templates", e);
+        }
+    }
+
+    private static void deleteTemplate(Connection connection, String templateName)
+    {
+        VERIFIED_TEMPLATES.remove(templateName);
+        CREATED_TEMPLATES.remove(templateName);
+        DeleteContainerCommand command = new DeleteContainerCommand();
+        command.setTimeout(BaseWebDriverTest.WAIT_FOR_PAGE * 4);
+        try
+        {
+            command.execute(connection, "/" + templateName);
+        }
+        catch (CommandException e)
+        {
+            if (e.getStatusCode() != 404)
+                throw new RuntimeException("Failed to delete fixture template: " + templateName, e);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Failed to delete fixture template: " + templateName, e);
+        }
+        ContainerMetadataCache.get().invalidateContainer(templateName);
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
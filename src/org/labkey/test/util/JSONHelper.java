@@ -21,7 +21,11 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
@@ -141,10 +145,11 @@ private boolean compareArrays(JSONArray expected, JSONArray actual, boolean fata
         else
         {
             // lists are not ordered. Search for a match.
+            ArrayIndex index = new ArrayIndex(actual);
             for (int i = 0; i < expected.length(); i++)
             {
                 boolean matched = false;
-                for (Object o : actual)
+                for (Object o : index.getCandidates(expected.get(i)))
                 {
                     if (compareElement(expected.get(i), o, false))
                     {
@@ -163,6 +168,81 @@ private boolean compareArrays(JSONArray expected, JSONArray actual, boolean fata
         return true;
     }
 
+    /**
+     * Finds the elements of an unordered array that might match an expected element without comparing against every
+     * element. Elements are bucketed by a hash of their leaf values: the value itself for leaves, or the values of the
+     * expected object's non-ignored leaf properties for objects. Elements that match always share a bucket, so only
+     * the elements in that bucket need a full comparison.
+     */
+    private class ArrayIndex
+    {
+        // Each distinct set of expected keys needs its own index. Fall back to a full scan for unusually varied arrays
+        private static final int MAX_KEY_SETS = 8;
+
+        private final JSONArray _actual;
+        private final Map<Integer, List<Object>> _leafIndex = new HashMap<>();
+        private final Map<List<String>, Map<Integer, List<Object>>> _objectIndexes = new HashMap<>();
+        private final List<Object> _allElements = new ArrayList<>();
+
+        private ArrayIndex(JSONArray actual)
+        {
+            _actual = actual;
+            for (Object o : actual)
+            {
+                _allElements.add(o);
+                if (!(o instanceof JSONObject || o instanceof JSONArray))
+                    _leafIndex.computeIfAbsent(Objects.hashCode(o), k -> new ArrayList<>()).add(o);
+            }
+        }
+
+        private List<Object> getCandidates(Object expected)
+        {
+            if (expected instanceof JSONArray)
+                return _allElements;
+            if (!(expected instanceof JSONObject expectedObject))
+                return _leafIndex.getOrDefault(Objects.hashCode(expected), List.of());
+
+            List<String> keys = getLeafKeys(expectedObject);
+            Map<Integer, List<Object>> objectIndex = _objectIndexes.get(keys);
+            if (objectIndex == null)
+            {
+                if (_objectIndexes.size() >= MAX_KEY_SETS)
+                    return _allElements;
+                objectIndex = new HashMap<>();
+                for (Object o : _actual)
+                {
+                    if (o instanceof JSONObject actualObject)
+                        objectIndex.computeIfAbsent(hashLeaves(actualObject, keys), k -> new ArrayList<>()).add(o);
+                }
+                _objectIndexes.put(keys, objectIndex);
+            }
+            return objectIndex.getOrDefault(hashLeaves(expectedObject, keys), List.of());
+        }
+
+        // Leaf properties that compareMap will check for an exact match
+        private List<String> getLeafKeys(JSONObject expected)
+        {
+            List<String> keys = new ArrayList<>();
+            for (String key : expected.keySet())
+            {
+                Object value = expected.get(key);
+                if (!(value instanceof JSONObject || value instanceof JSONArray) && !skipElement(key))
+                    keys.add(key);
+            }
+            Collections.sort(keys);
+            return keys;
+        }
+
+        // Missing properties hash like nulls, since an expected null matches a missing property
+        private int hashLeaves(JSONObject object, List<String> keys)
+        {
+            int hash = 1;
+            for (String key : keys)
+                hash = 31 * hash + Objects.hashCode(object.opt(key) == null ? JSONObject.NULL : object.get(key));
+            return hash;
+        }
+    }
+
     private boolean compareElement(Object expected, Object actual, boolean fatal)
     {
         if (expected instanceof JSONObject oExp && actual instanceof JSONObject oAct)
@@ -41,6 +41,7 @@ public static void setLogLevel(@LoggedParam String name, @LoggedParam ManagerPag
         if (TestProperties.isPrimaryUserAppAdmin())
             return;
 
+        SiteStateConfigurer.invalidate(SiteStateConfigurer.DEBUG_LOGGING);
         Connection connection = WebTestHelper.getRemoteApiConnection();
         SimplePostCommand command = new SimplePostCommand("logger", "update");
         Map<String, Object> params = new HashMap<>();
@@ -71,6 +72,7 @@ public static void resetAllLogLevels()
         if (TestProperties.isPrimaryUserAppAdmin() || !TestProperties.isTestRunningOnTeamCity())
             return;
 
+        SiteStateConfigurer.invalidate(SiteStateConfigurer.DEBUG_LOGGING);
         Connection connection = WebTestHelper.getRemoteApiConnection();
         SimplePostCommand command = new SimplePostCommand("logger", "reset");
         try
@@ -0,0 +1,162 @@
+package org.labkey.test.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick matcher that finds the first occurrence of many literal strings in one pass over a text.
+ * Build once per set of patterns; matching is linear in the length of the text (plus the number of matches) regardless
+ * of how many patterns there are. Instances are immutable and can be shared between threads.
+ */
+public final class MultiPatternMatcher
+{
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final int _patternCount;
+    private final int[] _patternLengths;
+    // Sorted transitions for each node
+    private final char[][] _transitionChars;
+    private final int[][] _transitionTargets;
+    private final int[] _failure;
+    // Patterns that end at each node (excluding those found via the dictionary link)
+    private final int[][] _outputs;
+    // Nearest node on the failure chain with outputs
+    private final int[] _dictionaryLink;
+
+    /**
+     * @param patterns strings to search for. Must not be empty strings. Duplicates are allowed.
+     */
+    public MultiPatternMatcher(List<String> patterns)
+    {
+        _patternCount = patterns.size();
+        _patternLengths = new int[_patternCount];
+
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(new ArrayList<>());
+
+        for (int p = 0; p < _patternCount; p++)
+        {
+            String pattern = patterns.get(p);
+            if (pattern.isEmpty())
+                throw new IllegalArgumentException("Patterns must not be empty");
+            _patternLengths[p] = pattern.length();
+
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++)
+            {
+                Integer next = trie.get(node).get(pattern.charAt(i));
+                if (next == null)
+                {
+                    next = trie.size();
+                    trie.get(node).put(pattern.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    outputs.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            outputs.get(node).add(p);
+        }
+
+        int nodeCount = trie.size();
+        _transitionChars = new char[nodeCount][];
+        _transitionTargets = new int[nodeCount][];
+        _outputs = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++)
+        {
+            TreeMap<Character, Integer> transitions = trie.get(node);
+            _transitionChars[node] = new char[transitions.size()];
+            _transitionTargets[node] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet())
+            {
+                _transitionChars[node][i] = transition.getKey();
+                _transitionTargets[node][i] = transition.getValue();
+                i++;
+            }
+            _outputs[node] = outputs.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Breadth-first, so that failure links always point to nodes that have already been linked
+        _failure = new int[nodeCount];
+        _dictionaryLink = new int[nodeCount];
+        _failure[ROOT] = ROOT;
+        _dictionaryLink[ROOT] = NONE;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : _transitionTargets[ROOT])
+        {
+            _failure[child] = ROOT;
+            _dictionaryLink[child] = NONE;
+            queue.add(child);
+        }
+        while (!queue.isEmpty())
+        {
+            int node = queue.remove();
+            for (int i = 0; i < _transitionChars[node].length; i++)
+            {
+                char c = _transitionChars[node][i];
+                int child = _transitionTargets[node][i];
+
+                int fallback = _failure[node];
+                int target;
+                while ((target = getTransition(fallback, c)) == NONE && fallback != ROOT)
+                {
+                    fallback = _failure[fallback];
+                }
+                _failure[child] = target == NONE ? ROOT : target;
+                int failure = _failure[child];
+                _dictionaryLink[child] = _outputs[failure].length > 0 ? failure : _dictionaryLink[failure];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int getTransition(int node, char c)
+    {
+        int i = Arrays.binarySearch(_transitionChars[node], c);
+        return i >= 0 ? _transitionTargets[node][i] : NONE;
+    }
+
+    /**
+     * Find the first occurrence of each pattern. Stops reading the text once every pattern has been found.
+     * @return index in the text of each pattern (in the same order as the patterns), -1 for patterns that weren't found
+     */
+    public int[] indexOf(CharSequence text)
+    {
+        int[] positions = new int[_patternCount];
+        Arrays.fill(positions, -1);
+        int remaining = _patternCount;
+
+        int state = ROOT;
+        for (int i = 0; i < text.length() && remaining > 0; i++)
+        {
+            char c = text.charAt(i);
+            int next;
+            while ((next = getTransition(state, c)) == NONE && state != ROOT)
+            {
+                state = _failure[state];
+            }
+            state = next == NONE ? ROOT : next;
+
+            for (int node = _outputs[state].length > 0 ? state : _dictionaryLink[state]; node != NONE; node = _dictionaryLink[node])
+            {
+                for (int pattern : _outputs[node])
+                {
+                    if (positions[pattern] == -1)
+                    {
+                        positions[pattern] = i - _patternLengths[pattern] + 1;
+                        remaining--;
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,190 @@
+package org.labkey.test.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
+import org.labkey.remoteapi.CommandException;
+import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.query.ContainerFilter;
+import org.labkey.remoteapi.query.Filter;
+import org.labkey.remoteapi.query.SelectRowsCommand;
+import org.labkey.remoteapi.query.SelectRowsResponse;
+import org.labkey.remoteapi.query.Sort;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Reads pipeline job status through the 'pipeline.Job' query instead of scraping the StatusFiles grid.
+ * Waits poll with a growing interval, so short jobs are noticed quickly and long jobs don't flood the server.
+ */
+public class PipelineJobApiHelper
+{
+    public static final String SCHEMA = "pipeline";
+    public static final String QUERY = "Job";
+    public static final List<String> FINISHED_STATES = List.of("COMPLETE", "ERROR", "CANCELLED");
+
+    private static final Duration INITIAL_POLL_INTERVAL = Duration.ofMillis(250);
+    private static final Duration MAX_POLL_INTERVAL = Duration.ofSeconds(5);
+
+    private final Connection _connection;
+    private final String _containerPath;
+    private ContainerFilter _containerFilter = null;
+    private String _description = null;
+    private boolean _descriptionStartsWith = false;
+
+    public PipelineJobApiHelper(Connection connection, String containerPath)
+    {
+        _connection = connection;
+        _containerPath = containerPath;
+    }
+
+    /**
+     * Include jobs from other containers. Matches the StatusFiles grid's 'containerFilterName' parameter.
+     */
+    public PipelineJobApiHelper setContainerFilter(@Nullable ContainerFilter containerFilter)
+    {
+        _containerFilter = containerFilter;
+        return this;
+    }
+
+    /**
+     * Only consider jobs whose description contains (or starts with) the specified text
+     */
+    public PipelineJobApiHelper setDescriptionFilter(@Nullable String description, boolean startsWith)
+    {
+        _description = description;
+        _descriptionStartsWith = startsWith;
+        return this;
+    }
+
+    public PipelineJobApiHelper setDescriptionFilter(@Nullable String description)
+    {
+        return setDescriptionFilter(description, false);
+    }
+
+    /**
+     * @return 'RowId', 'Status', and 'Description' of all matching jobs, newest first (same order as the StatusFiles grid)
+     */
+    public List<Map<String, Object>> getJobs()
+    {
+        return selectJobs(new ArrayList<>(), _containerFilter);
+    }
+
+    /**
+     * @return Status of every matching job, equivalent to the "Status" column of the StatusFiles grid
+     */
+    public List<String> getStatusValues()
+    {
+        return getJobs().stream().map(row -> Objects.toString(row.get("Status"), "")).collect(Collectors.toList());
+    }
+
+    /**
+     * Find descriptions for jobs, in any folder, that are neither finished nor waiting on another job.
+     * Useful for diagnosing a stalled pipeline.
+     */
+    public List<String> getBlockingJobDescriptions()
+    {
+        List<Filter> filters = new ArrayList<>();
+        filters.add(new Filter("Status", String.join(";", FINISHED_STATES), Filter.Operator.NOT_IN));
+        filters.add(new Filter("Status", "WAIT", Filter.Operator.DOES_NOT_CONTAIN));
+        return selectJobs(filters, ContainerFilter.AllFolders).stream()
+                .map(row -> Objects.toString(row.get("Description"), "")).collect(Collectors.toList());
+    }
+
+    /**
+     * Wait until all matching jobs have finished. Does not assert anything about the final state.
+     * @param timeout maximum time to wait
+     * @return final status values for all matching jobs
+     */
+    public List<String> waitForRunningJobs(Duration timeout)
+    {
+        return waitForJobs(0, timeout);
+    }
+
+    /**
+     * Wait until at least the expected number of jobs exist and all of them have finished.
+     * Does not assert anything about the final state.
+     * @param jobsExpected minimum number of jobs to wait for
+     * @param timeout maximum time to wait
+     * @return final status values for all matching jobs
+     */
+    public List<String> waitForJobs(int jobsExpected, Duration timeout)
+    {
+        Timer timer = new Timer(timeout);
+        Duration pollInterval = INITIAL_POLL_INTERVAL;
+        List<String> statusValues = getStatusValues();
+        while (!isDone(statusValues, jobsExpected) && !timer.isTimedOut())
+        {
+            TestLogger.log("[" + StringUtils.join(statusValues, ",") + "]");
+            TestLogger.log("Waiting for " + Math.max(statusValues.size() - getFinishedCount(statusValues), jobsExpected - statusValues.size()) + " job(s) to complete...");
+            sleep(pollInterval.compareTo(timer.timeRemaining()) < 0 ? pollInterval : timer.timeRemaining());
+            pollInterval = pollInterval.multipliedBy(2);
+            if (pollInterval.compareTo(MAX_POLL_INTERVAL) > 0)
+                pollInterval = MAX_POLL_INTERVAL;
+            statusValues = getStatusValues();
+        }
+        TestLogger.log("Final: [" + StringUtils.join(statusValues, ",") + "]");
+        return statusValues;
+    }
+
+    private static boolean isDone(List<String> statusValues, int jobsExpected)
+    {
+        return statusValues.size() >= jobsExpected && statusValues.size() == getFinishedCount(statusValues);
+    }
+
+    /**
+     * Count jobs that have finished. Split jobs never "finish" if subjobs have errors, so those are counted when there
+     * is an error.
+     */
+    public static int getFinishedCount(List<String> statusValues)
+    {
+        List<String> finishedStates = new ArrayList<>(FINISHED_STATES);
+        if (statusValues.contains("ERROR"))
+            finishedStates.add("SPLIT WAITING");
+        return (int) statusValues.stream().filter(finishedStates::contains).count();
+    }
+
+    private List<Map<String, Object>> selectJobs(List<Filter> filters, @Nullable ContainerFilter containerFilter)
+    {
+        SelectRowsCommand cmd = new SelectRowsCommand(SCHEMA, QUERY);
+        cmd.setColumns(Arrays.asList("RowId", "Status", "Description"));
+        cmd.setSorts(List.of(new Sort("Created", Sort.Direction.DESCENDING)));
+        cmd.setMaxRows(-1);
+        if (containerFilter != null)
+            cmd.setContainerFilter(containerFilter);
+        if (_description != null)
+            filters.add(new Filter("Description", _description, _descriptionStartsWith ? Filter.Operator.STARTS_WITH : Filter.Operator.CONTAINS));
+        cmd.setFilters(filters);
+
+        try
+        {
+            SelectRowsResponse response = cmd.execute(_connection, _containerPath);
+            return response.getRows();
+        }
+        catch (IOException | CommandException e)
+        {
+            throw new RuntimeException("Failed to query pipeline jobs in " + _containerPath, e);
+        }
+    }
+
+    private static void sleep(Duration duration)
+    {
+        if (duration.isNegative() || duration.isZero())
+            return;
+        try
+        {
+            Thread.sleep(duration.toMillis());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
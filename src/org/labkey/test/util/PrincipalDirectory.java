@@ -0,0 +1,196 @@
+package org.labkey.test.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
+import org.labkey.test.TestProperties;
+import org.labkey.test.WebTestHelper;
+import org.labkey.test.util.ContainerMetadataCache.Loader;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Suite-wide cache of principal IDs for the server under test: user IDs by email and group IDs by project and name.
+ * Users are loaded in bulk (one 'getUsers' request) and groups are loaded per project (one 'getGroupPerms' request).
+ * A lookup that misses reloads the list once, so principals created by other means are still found.
+ * User and permission helpers keep entries up to date when they create or delete principals and when projects are
+ * deleted or renamed. Code that renames a group must call {@link #invalidateGroups(String)} for the group's project. Entries expire after {@link TestProperties#getMetadataCacheTtl()}.
+ */
+public class PrincipalDirectory
+{
+    private static final String SITE = "/";
+
+    private static final PrincipalDirectory INSTANCE = new PrincipalDirectory();
+
+    private final Map<String, Entry> _users = new HashMap<>();
+    private final Map<String, Entry> _groups = new HashMap<>();
+
+    private PrincipalDirectory()
+    {
+    }
+
+    public static PrincipalDirectory get()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param loader loads email to userId for all users (including inactive users)
+     * @return userIds for the specified emails. Emails that don't belong to any user are omitted
+     */
+    public synchronized <E extends Exception> Map<String, Integer> getUserIds(List<String> userEmails, Loader<Map<String, Integer>, E> loader) throws E
+    {
+        String key = getServerKey();
+        boolean cached = isCached(_users, key);
+        Map<String, Integer> allUsers = getOrLoad(_users, key, loader, false);
+        if (cached && !allUsers.keySet().containsAll(userEmails))
+            allUsers = getOrLoad(_users, key, loader, true);
+
+        Map<String, Integer> userIds = new HashMap<>();
+        for (String email : userEmails)
+        {
+            Integer userId = allUsers.get(email);
+            if (userId != null)
+                userIds.put(email, userId);
+        }
+        return userIds;
+    }
+
+    /**
+     * @param loader loads group name to groupId for all groups that belong to the project (site groups, for '/')
+     */
+    @Nullable
+    public synchronized <E extends Exception> Integer getGroupId(String project, String groupName, Loader<Map<String, Integer>, E> loader) throws E
+    {
+        String key = getGroupKey(project);
+        boolean cached = isCached(_groups, key);
+        Integer groupId = getOrLoad(_groups, key, loader, false).get(groupName);
+        if (cached && groupId == null)
+            groupId = getOrLoad(_groups, key, loader, true).get(groupName);
+        return groupId;
+    }
+
+    /**
+     * Reload a project's groups, regardless of whether they have been cached. For existence checks that shouldn't
+     * trust the cache.
+     */
+    public synchronized <E extends Exception> Map<String, Integer> refreshGroupIds(String project, Loader<Map<String, Integer>, E> loader) throws E
+    {
+        return Collections.unmodifiableMap(getOrLoad(_groups, getGroupKey(project), loader, true));
+    }
+
+    public synchronized void putUser(String email, Integer userId)
+    {
+        Entry entry = _users.get(getServerKey());
+        if (entry != null)
+            entry.getValue().put(email, userId);
+    }
+
+    public synchronized void removeUsers(Collection<String> userEmails)
+    {
+        Entry entry = _users.get(getServerKey());
+        if (entry != null)
+            userEmails.forEach(entry.getValue()::remove);
+    }
+
+    /**
+     * Forget all users. Use after deleting users by means other than the user helpers.
+     */
+    public synchronized void invalidateUsers()
+    {
+        _users.remove(getServerKey());
+    }
+
+    public synchronized void putGroup(String project, String groupName, Integer groupId)
+    {
+        Entry entry = _groups.get(getGroupKey(project));
+        if (entry != null)
+            entry.getValue().put(groupName, groupId);
+    }
+
+    public synchronized void removeGroup(String project, String groupName)
+    {
+        Entry entry = _groups.get(getGroupKey(project));
+        if (entry != null)
+            entry.getValue().remove(groupName);
+    }
+
+    /**
+     * Forget a project's groups. Use after deleting or renaming a project, or after renaming one of its groups.
+     * Ignores subfolders, which don't own groups.
+     */
+    public synchronized void invalidateGroups(String containerPath)
+    {
+        String path = StringUtils.strip(StringUtils.trimToEmpty(containerPath), "/");
+        if (!path.contains("/"))
+            _groups.remove(getGroupKey(path));
+    }
+
+    public synchronized void invalidateAllGroups()
+    {
+        _groups.clear();
+    }
+
+    public synchronized void clear()
+    {
+        _users.clear();
+        _groups.clear();
+    }
+
+    private boolean isCached(Map<String, Entry> map, String key)
+    {
+        Duration ttl = TestProperties.getMetadataCacheTtl();
+        Entry entry = map.get(key);
+        return !ttl.isZero() && entry != null && !entry.isExpired(ttl);
+    }
+
+    private <E extends Exception> Map<String, Integer> getOrLoad(Map<String, Entry> map, String key, Loader<Map<String, Integer>, E> loader, boolean reload) throws E
+    {
+        if (reload || !isCached(map, key))
+        {
+            // Emails are case-insensitive. Group names are matched exactly, as the server does
+            map.put(key, new Entry(loader.load(), map == _users));
+        }
+        return map.get(key).getValue();
+    }
+
+    private static String getServerKey()
+    {
+        return WebTestHelper.getBaseURL();
+    }
+
+    // Project names are case-insensitive
+    private static String getGroupKey(String project)
+    {
+        String projectName = StringUtils.strip(StringUtils.trimToEmpty(project), "/").split("/", 2)[0];
+        return getServerKey() + "|" + (projectName.isEmpty() ? SITE : projectName.toLowerCase());
+    }
+
+    private static class Entry
+    {
+        private final Map<String, Integer> _value;
+        private final Instant _loaded = Instant.now();
+
+        private Entry(Map<String, Integer> value, boolean caseInsensitive)
+        {
+            _value = caseInsensitive ? new TreeMap<>(String.CASE_INSENSITIVE_ORDER) : new HashMap<>();
+            _value.putAll(value);
+        }
+
+        public Map<String, Integer> getValue()
+        {
+            return _value;
+        }
+
+        public boolean isExpired(Duration ttl)
+        {
+            return Duration.between(_loaded, Instant.now()).compareTo(ttl) > 0;
+        }
+    }
+}
@@ -82,7 +82,7 @@ public int runProcess(StringBuffer output, boolean logOutput) throws IOException
         ExecutorService pool = Executors.newSingleThreadExecutor();
 
         // collect output using separate thread so we can enforce a timeout on the process
-        Future<Integer> out = pool.submit(() -> {
+        Future<Integer> out = pool.submit(TestLogger.propagateContext(() -> {
             try (BufferedReader procReader = new BufferedReader(new InputStreamReader(proc.getInputStream(), Charset.defaultCharset())))
             {
                 String line;
@@ -97,7 +97,7 @@ public int runProcess(StringBuffer output, boolean logOutput) throws IOException
                 }
                 return count;
             }
-        });
+        }));
 
         try
         {
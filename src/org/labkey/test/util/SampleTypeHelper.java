@@ -18,7 +18,6 @@
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.labkey.remoteapi.CommandException;
-import org.labkey.remoteapi.Connection;
 import org.labkey.remoteapi.query.InsertRowsCommand;
 import org.labkey.test.Locator;
 import org.labkey.test.WebDriverWrapper;
@@ -332,21 +331,23 @@ public String getDetailsFieldValue(String label)
     
     public void addSampleStates(String folderPath, Map<String, StatusType> states) throws IOException, CommandException
     {
+        if (states.isEmpty())
+            return;
+
+        InsertRowsCommand insertCmd = new InsertRowsCommand("core", "DataStates");
         for (Map.Entry<String, StatusType> statePair : states.entrySet())
-            insertSampleState(folderPath, statePair.getKey(), statePair.getValue().name());
+            insertCmd.addRow(getSampleStateRow(statePair.getKey(), statePair.getValue().name()));
+        insertCmd.execute(WebTestHelper.getRemoteApiConnection(), folderPath);
     }
 
     // we use the string here for stateType instead of the enum to allow for setting values outside the enum (error conditions)
-    private void insertSampleState(String folderPath, String label, @Nullable String stateType) throws IOException, CommandException
+    private Map<String, Object> getSampleStateRow(String label, @Nullable String stateType)
     {
-        Connection cn = WebTestHelper.getRemoteApiConnection();
-        InsertRowsCommand insertCmd = new InsertRowsCommand("core", "DataStates");
         Map<String,Object> rowMap = new HashMap<>();
         rowMap.put("label", label);
         rowMap.put("stateType", stateType);
         rowMap.put("publicData", false);
-        insertCmd.addRow(rowMap);
-        insertCmd.execute(cn, folderPath);
+        return rowMap;
     }
 
     public DataRegionTable linkToStudy(String targetStudy, String sampleTypeName, List<String> sampleIds, @Nullable String categoryName)
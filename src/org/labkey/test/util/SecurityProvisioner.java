@@ -0,0 +1,274 @@
+package org.labkey.test.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.labkey.remoteapi.CommandException;
+import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.security.AddAssignmentCommand;
+import org.labkey.remoteapi.security.BulkUpdateGroupCommand;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Declarative setup of users, groups, and role assignments. Collect a test's whole security configuration, then
+ * {@link #apply()} it with as few requests as possible:
+ * <ul>
+ *     <li>All users are resolved with one 'getUsers' request and missing users are created with one 'createNewUser' request</li>
+ *     <li>Each group is created (if needed) and populated with one 'bulkUpdateGroup' request</li>
+ *     <li>Principal IDs come from the shared {@link PrincipalDirectory}</li>
+ *     <li>Role assignments for different containers are sent concurrently. Assignments within a container are sent in
+ *     order, since each one updates that container's policy</li>
+ * </ul>
+ * Principals in role assignments and group memberships are treated as users if they contain '@', otherwise as groups.
+ * Groups are resolved in the container's project first, then at the site level. A group that is a member of another
+ * declared group must be declared (or exist) first.
+ */
+public class SecurityProvisioner
+{
+    private static final int MAX_THREADS = 4;
+
+    private final Supplier<Connection> _connectionSupplier;
+    private final Set<String> _users = new LinkedHashSet<>();
+    private final List<GroupSpec> _groups = new ArrayList<>();
+    private final Map<String, List<RoleSpec>> _rolesByContainer = new LinkedHashMap<>();
+
+    public SecurityProvisioner(Supplier<Connection> connectionSupplier)
+    {
+        _connectionSupplier = connectionSupplier;
+    }
+
+    public SecurityProvisioner addUsers(String... userEmails)
+    {
+        _users.addAll(Arrays.asList(userEmails));
+        return this;
+    }
+
+    public SecurityProvisioner addUsers(List<String> userEmails)
+    {
+        _users.addAll(userEmails);
+        return this;
+    }
+
+    public SecurityProvisioner addSiteGroup(String groupName, String... members)
+    {
+        return addProjectGroup("/", groupName, members);
+    }
+
+    public SecurityProvisioner addProjectGroup(String project, String groupName, String... members)
+    {
+        _groups.add(new GroupSpec(getProject(project), groupName, Arrays.asList(members)));
+        for (String member : members)
+        {
+            if (isUser(member))
+                _users.add(member);
+        }
+        return this;
+    }
+
+    /**
+     * Assign roles to a user or group in a container
+     * @param roles role names or class names. See {@link PermissionsHelper#toRole(String)}
+     */
+    public SecurityProvisioner addRoles(String containerPath, String userOrGroupName, String... roles)
+    {
+        List<RoleSpec> containerRoles = _rolesByContainer.computeIfAbsent(containerPath, k -> new ArrayList<>());
+        for (String role : roles)
+            containerRoles.add(new RoleSpec(userOrGroupName, PermissionsHelper.toRole(role)));
+        if (isUser(userOrGroupName))
+            _users.add(userOrGroupName);
+        return this;
+    }
+
+    /**
+     * Assign every role to every principal in every container
+     */
+    public SecurityProvisioner addRoles(List<String> containerPaths, List<String> usersOrGroups, List<String> roles)
+    {
+        for (String containerPath : containerPaths)
+        {
+            for (String userOrGroupName : usersOrGroups)
+                addRoles(containerPath, userOrGroupName, roles.toArray(new String[0]));
+        }
+        return this;
+    }
+
+    @LogMethod
+    public void apply()
+    {
+        Map<String, Integer> userIds = ensureUsers();
+        applyGroups();
+        applyRoles(userIds);
+    }
+
+    private Map<String, Integer> ensureUsers()
+    {
+        if (_users.isEmpty())
+            return Map.of();
+
+        APIUserHelper userHelper = new APIUserHelper(_connectionSupplier);
+        Map<String, Integer> userIds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        userIds.putAll(userHelper.getUserIds(new ArrayList<>(_users), true));
+
+        List<String> missingUsers = _users.stream().filter(user -> !userIds.containsKey(user)).toList();
+        if (!missingUsers.isEmpty())
+        {
+            TestLogger.log("Creating " + missingUsers.size() + " user(s)");
+            userIds.putAll(userHelper.createUsers(missingUsers));
+        }
+        return userIds;
+    }
+
+    private void applyGroups()
+    {
+        if (_groups.isEmpty())
+            return;
+
+        Connection connection = _connectionSupplier.get();
+        for (GroupSpec group : _groups)
+        {
+            BulkUpdateGroupCommand command = new BulkUpdateGroupCommand(group.name());
+            command.setCreateGroup(true);
+            command.setMethod(BulkUpdateGroupCommand.Method.add);
+            for (String member : group.members())
+            {
+                if (isUser(member))
+                    command.addMemberUser(member);
+                else
+                    command.addMemberGroup(getGroupId(member, group.project()));
+            }
+
+            try
+            {
+                Integer groupId = command.execute(connection, group.project()).getId().intValue();
+                PrincipalDirectory.get().putGroup(group.project(), group.name(), groupId);
+            }
+            catch (IOException | CommandException e)
+            {
+                throw new RuntimeException("Failed to create or update group '" + group.name() + "' in " + group.project(), e);
+            }
+        }
+    }
+
+    private void applyRoles(Map<String, Integer> userIds)
+    {
+        if (_rolesByContainer.isEmpty())
+            return;
+
+        // Resolve everything before starting any requests, so that background threads only send assignments
+        Map<String, List<AddAssignmentCommand>> commandsByContainer = new LinkedHashMap<>();
+        for (Map.Entry<String, List<RoleSpec>> entry : _rolesByContainer.entrySet())
+        {
+            String containerPath = entry.getKey();
+            List<AddAssignmentCommand> commands = new ArrayList<>();
+            for (RoleSpec role : entry.getValue())
+            {
+                Integer principalId = isUser(role.principal())
+                        ? userIds.get(role.principal())
+                        : getGroupId(role.principal(), getProject(containerPath));
+                if (principalId == null)
+                    throw new IllegalArgumentException("User not found: " + role.principal());
+
+                AddAssignmentCommand command = new AddAssignmentCommand();
+                command.setPrincipalId(principalId);
+                command.setRoleClassName(role.roleClassName());
+                commands.add(command);
+            }
+            commandsByContainer.put(containerPath, commands);
+        }
+
+        int threadCount = Math.min(MAX_THREADS, commandsByContainer.size());
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++)
+            connections.add(_connectionSupplier.get());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "SecurityProvisioner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            // Each worker handles whole containers with its own connection
+            List<Map<String, List<AddAssignmentCommand>>> partitions = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++)
+                partitions.add(new LinkedHashMap<>());
+            int i = 0;
+            for (Map.Entry<String, List<AddAssignmentCommand>> entry : commandsByContainer.entrySet())
+                partitions.get(i++ % threadCount).put(entry.getKey(), entry.getValue());
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < threadCount; p++)
+            {
+                Connection connection = connections.get(p);
+                Map<String, List<AddAssignmentCommand>> partition = partitions.get(p);
+                futures.add(executor.submit(TestLogger.propagateContext(() -> {
+                    for (Map.Entry<String, List<AddAssignmentCommand>> entry : partition.entrySet())
+                    {
+                        for (AddAssignmentCommand command : entry.getValue())
+                            command.execute(connection, entry.getKey());
+                    }
+                    return null;
+                })));
+            }
+
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Failed to assign roles", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private Integer getGroupId(String groupName, String project)
+    {
+        if ("Developers".equals(groupName))
+            return -4; // Actually a role, exposed as a group -- org.labkey.api.security.Group.groupDevelopers
+
+        PrincipalDirectory directory = PrincipalDirectory.get();
+        Integer groupId = directory.getGroupId(project, groupName, () -> ApiPermissionsHelper.loadProjectGroupIds(_connectionSupplier.get(), project));
+        if (groupId == null && !"/".equals(project))
+            groupId = directory.getGroupId("/", groupName, () -> ApiPermissionsHelper.loadProjectGroupIds(_connectionSupplier.get(), "/"));
+        if (groupId == null)
+            throw new IllegalArgumentException("Group not found: " + groupName);
+        return groupId;
+    }
+
+    private static String getProject(String containerPath)
+    {
+        String project = StringUtils.stripStart(StringUtils.trimToEmpty(containerPath), "/").split("/", 2)[0];
+        return project.isBlank() ? "/" : project;
+    }
+
+    private static boolean isUser(String principal)
+    {
+        return principal.contains("@");
+    }
+
+    private record GroupSpec(String project, String name, List<String> members) { }
+
+    private record RoleSpec(String principal, String roleClassName) { }
+}
@@ -0,0 +1,369 @@
+package org.labkey.test.util;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.jetbrains.annotations.Nullable;
+import org.labkey.remoteapi.CommandException;
+import org.labkey.remoteapi.CommandResponse;
+import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.SimpleGetCommand;
+import org.labkey.remoteapi.query.ContainerFilter;
+import org.labkey.test.util.search.SearchAdminAPIHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Waits for the server to become idle: no pending requests, an idle search indexer and, optionally, no unfinished
+ * pipeline jobs in a container. Pending requests and pipeline jobs are checked concurrently. The search indexer is
+ * checked once no requests are pending, since those requests might still queue indexing tasks, and has its own timeout.
+ * The result reports how long each condition took, so the slowest one (the bottleneck) can be identified.
+ */
+public class ServerIdleWaiter
+{
+    private static final Duration INITIAL_POLL_INTERVAL = Duration.ofMillis(100);
+    private static final Duration MAX_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final Supplier<Connection> _connectionFactory;
+    private final Set<Condition> _conditions = EnumSet.of(Condition.PENDING_REQUESTS, Condition.SEARCH_INDEXER);
+    private Duration _indexerTimeout = null;
+    private String _pipelineContainer = null;
+
+    /**
+     * @param connectionFactory Provides a separate connection for each condition. Called on the invoking thread.
+     */
+    public ServerIdleWaiter(Supplier<Connection> connectionFactory)
+    {
+        _connectionFactory = connectionFactory;
+    }
+
+    public ServerIdleWaiter withoutCondition(Condition condition)
+    {
+        _conditions.remove(condition);
+        return this;
+    }
+
+    /**
+     * Also wait for pipeline jobs in the specified container and its subfolders to finish
+     */
+    public ServerIdleWaiter withPipelineJobs(String containerPath)
+    {
+        _pipelineContainer = containerPath;
+        _conditions.add(Condition.PIPELINE_JOBS);
+        return this;
+    }
+
+    /**
+     * Time allowed for the search indexer after pending requests have finished. Defaults to the timeout passed to
+     * {@link #waitForIdle(Duration)}.
+     */
+    public ServerIdleWaiter setIndexerTimeout(Duration indexerTimeout)
+    {
+        _indexerTimeout = indexerTimeout;
+        return this;
+    }
+
+    public IdleResult waitForIdle(Duration timeout)
+    {
+        Instant start = Instant.now();
+        Map<Condition, Connection> connections = new EnumMap<>(Condition.class);
+        for (Condition condition : _conditions)
+            connections.put(condition, _connectionFactory.get());
+
+        if (connections.isEmpty())
+            return new IdleResult(Collections.emptyMap(), Duration.ZERO);
+
+        Timer timer = new Timer(timeout);
+        Duration indexerTimeout = _indexerTimeout != null ? _indexerTimeout : timeout;
+        CountDownLatch requestsIdle = new CountDownLatch(_conditions.contains(Condition.PENDING_REQUESTS) ? 1 : 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(connections.size(), r -> {
+            Thread thread = new Thread(r, "ServerIdleWaiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<Condition, Future<ConditionResult>> futures = new EnumMap<>(Condition.class);
+        try
+        {
+            for (Map.Entry<Condition, Connection> entry : connections.entrySet())
+            {
+                Connection cn = entry.getValue();
+                Callable<ConditionResult> task = switch (entry.getKey())
+                {
+                    case PENDING_REQUESTS -> () -> waitForPendingRequests(cn, timer, start, requestsIdle);
+                    case SEARCH_INDEXER -> () -> waitForIndexer(cn, timer, indexerTimeout, start, requestsIdle);
+                    case PIPELINE_JOBS -> () -> waitForPipeline(cn, timer, start);
+                };
+                futures.put(entry.getKey(), executor.submit(TestLogger.propagateContext(task)));
+            }
+
+            // The indexer's timeout starts after pending requests finish
+            Timer resultTimer = new Timer(_conditions.contains(Condition.SEARCH_INDEXER) ? timeout.plus(indexerTimeout) : timeout);
+            Map<Condition, ConditionResult> results = new EnumMap<>(Condition.class);
+            for (Map.Entry<Condition, Future<ConditionResult>> entry : futures.entrySet())
+            {
+                results.put(entry.getKey(), getResult(entry.getValue(), resultTimer, start));
+            }
+            return new IdleResult(results, Duration.between(start, Instant.now()));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private ConditionResult getResult(Future<ConditionResult> future, Timer timer, Instant start)
+    {
+        try
+        {
+            // Allow a little extra time for requests that were already in flight when the timer expired
+            long waitMs = Math.max(timer.timeRemaining().toMillis(), 0) + 5_000;
+            return future.get(waitMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return ConditionResult.failed(start, "Interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            return ConditionResult.failed(start, "Error: " + e.getCause().getMessage(), e.getCause());
+        }
+        catch (TimeoutException e)
+        {
+            future.cancel(true);
+            return ConditionResult.failed(start, "Timed out", e);
+        }
+    }
+
+    private ConditionResult waitForPendingRequests(Connection cn, Timer timer, Instant start, CountDownLatch requestsIdle) throws InterruptedException
+    {
+        try
+        {
+            int count = -1;
+            Duration pollInterval = INITIAL_POLL_INTERVAL;
+            while (!timer.isTimedOut())
+            {
+                count = getPendingRequestCount(cn);
+                if (count == 0)
+                    return ConditionResult.satisfied(start, "No pending requests");
+                pollInterval = sleep(pollInterval, timer);
+            }
+            return ConditionResult.unsatisfied(start, count < 0 ? "Unable to fetch pending request count" : count + " requests still pending");
+        }
+        finally
+        {
+            requestsIdle.countDown();
+        }
+    }
+
+    private int getPendingRequestCount(Connection connection)
+    {
+        SimpleGetCommand getPendingRequestCount = new SimpleGetCommand("admin", "getPendingRequestCount");
+        try
+        {
+            CommandResponse response = getPendingRequestCount.execute(connection, null);
+            return response.getProperty("pendingRequestCount");
+        }
+        catch (IOException | CommandException e)
+        {
+            return -1;
+        }
+    }
+
+    private ConditionResult waitForIndexer(Connection cn, Timer requestTimer, Duration indexerTimeout, Instant start, CountDownLatch requestsIdle) throws Exception
+    {
+        // Don't hold a request open while pending requests are being counted. It would be included in the count.
+        requestsIdle.await(Math.max(requestTimer.timeRemaining().toMillis(), 0) + 5_000, TimeUnit.MILLISECONDS);
+
+        CommandResponse response = SearchAdminAPIHelper.getWaitForIndexerBackgroundCommand((int) indexerTimeout.toMillis()).execute(cn, null);
+        if (response.getStatusCode() != HttpStatus.SC_OK)
+            return ConditionResult.unsatisfied(start, "Indexer still busy");
+        return ConditionResult.satisfied(start, "Indexer idle");
+    }
+
+    private ConditionResult waitForPipeline(Connection cn, Timer timer, Instant start) throws InterruptedException
+    {
+        PipelineJobApiHelper apiHelper = new PipelineJobApiHelper(cn, _pipelineContainer).setContainerFilter(ContainerFilter.CurrentAndSubfolders);
+        List<String> statusValues = List.of();
+        Duration pollInterval = INITIAL_POLL_INTERVAL;
+        while (!timer.isTimedOut())
+        {
+            statusValues = apiHelper.getStatusValues();
+            if (statusValues.size() == PipelineJobApiHelper.getFinishedCount(statusValues))
+                return ConditionResult.satisfied(start, "No running pipeline jobs");
+            pollInterval = sleep(pollInterval, timer);
+        }
+        List<String> running = statusValues.stream()
+                .filter(status -> !PipelineJobApiHelper.FINISHED_STATES.contains(status))
+                .collect(Collectors.toList());
+        return ConditionResult.unsatisfied(start, running.size() + " pipeline jobs still running " + running);
+    }
+
+    private static Duration sleep(Duration pollInterval, Timer timer) throws InterruptedException
+    {
+        long sleepMs = Math.min(pollInterval.toMillis(), timer.timeRemaining().toMillis());
+        if (sleepMs > 0)
+            Thread.sleep(sleepMs);
+        Duration next = pollInterval.multipliedBy(2);
+        return next.compareTo(MAX_POLL_INTERVAL) > 0 ? MAX_POLL_INTERVAL : next;
+    }
+
+    public enum Condition
+    {
+        PENDING_REQUESTS("Pending requests"),
+        SEARCH_INDEXER("Search indexer"),
+        PIPELINE_JOBS("Pipeline jobs");
+
+        private final String _label;
+
+        Condition(String label)
+        {
+            _label = label;
+        }
+
+        public String getLabel()
+        {
+            return _label;
+        }
+    }
+
+    public static class ConditionResult
+    {
+        private final boolean _satisfied;
+        private final Duration _elapsed;
+        private final String _detail;
+        private final Throwable _error;
+
+        private ConditionResult(boolean satisfied, Instant start, String detail, @Nullable Throwable error)
+        {
+            _satisfied = satisfied;
+            _elapsed = Duration.between(start, Instant.now());
+            _detail = detail;
+            _error = error;
+        }
+
+        static ConditionResult satisfied(Instant start, String detail)
+        {
+            return new ConditionResult(true, start, detail, null);
+        }
+
+        static ConditionResult unsatisfied(Instant start, String detail)
+        {
+            return new ConditionResult(false, start, detail, null);
+        }
+
+        static ConditionResult failed(Instant start, String detail, Throwable error)
+        {
+            return new ConditionResult(false, start, detail, error);
+        }
+
+        public boolean isSatisfied()
+        {
+            return _satisfied;
+        }
+
+        /**
+         * @return Time from the start of the wait until this condition was satisfied (or gave up)
+         */
+        public Duration getElapsed()
+        {
+            return _elapsed;
+        }
+
+        public String getDetail()
+        {
+            return _detail;
+        }
+
+        public @Nullable Throwable getError()
+        {
+            return _error;
+        }
+
+        @Override
+        public String toString()
+        {
+            return _detail + " (" + TestLogger.formatElapsedTime(_elapsed.toMillis()) + ")";
+        }
+    }
+
+    public static class IdleResult
+    {
+        private final Map<Condition, ConditionResult> _results;
+        private final Duration _elapsed;
+
+        private IdleResult(Map<Condition, ConditionResult> results, Duration elapsed)
+        {
+            _results = Collections.unmodifiableMap(results);
+            _elapsed = elapsed;
+        }
+
+        public boolean isIdle()
+        {
+            return _results.values().stream().allMatch(ConditionResult::isSatisfied);
+        }
+
+        public Duration getElapsed()
+        {
+            return _elapsed;
+        }
+
+        public Map<Condition, ConditionResult> getResults()
+        {
+            return _results;
+        }
+
+        public @Nullable ConditionResult getResult(Condition condition)
+        {
+            return _results.get(condition);
+        }
+
+        /**
+         * @return The condition that was satisfied last or, if the server never became idle, the first unsatisfied
+         * condition. <code>null</code> if no conditions were checked.
+         */
+        public @Nullable Condition getBottleneck()
+        {
+            return _results.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isSatisfied())
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElseGet(() -> _results.entrySet().stream()
+                            .max(Map.Entry.comparingByValue((a, b) -> a.getElapsed().compareTo(b.getElapsed())))
+                            .map(Map.Entry::getKey)
+                            .orElse(null));
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder(isIdle() ? "Server idle" : "Server not idle");
+            sb.append(" after ").append(TestLogger.formatElapsedTime(_elapsed.toMillis()));
+            Condition bottleneck = getBottleneck();
+            if (bottleneck != null)
+                sb.append("; bottleneck: ").append(bottleneck.getLabel());
+            for (Map.Entry<Condition, ConditionResult> entry : _results.entrySet())
+            {
+                sb.append("\n  ").append(entry.getKey().getLabel()).append(": ").append(entry.getValue());
+            }
+            return sb.toString();
+        }
+    }
+}
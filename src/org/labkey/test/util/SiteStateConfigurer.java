@@ -0,0 +1,238 @@
+package org.labkey.test.util;
+
+import org.labkey.test.WebTestHelper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Applies site settings only when they differ from what was last applied to the server under test.
+ * Each setting is identified by a key and fingerprinted by its desired value. The fingerprints of applied settings are
+ * shared by all test classes in the JVM, so a setting that hasn't changed since the previous test class is skipped.
+ * Code that changes one of these settings by other means must call {@link #invalidate(String...)} so that the next
+ * {@link #configureSite()} re-applies it. All fingerprints are discarded when a test has to wait for the server to
+ * start, since a restarted server may not have retained the applied settings.
+ * <br>
+ * Settings flagged as concurrent are independent API calls and are applied on background threads while the remaining
+ * settings are applied, in order, on the calling thread. Concurrent settings must not interact with the browser.
+ */
+public class SiteStateConfigurer extends DefaultSiteConfigurer
+{
+    public static final String DEBUG_LOGGING = "debugLogging";
+    public static final String EXPERIMENTAL_FLAGS = "experimentalFlags";
+    public static final String TROUBLESHOOTING_STACKTRACES = "troubleshootingStacktraces";
+    public static final String SITE_TERMS_OF_USE = "siteTermsOfUse";
+    public static final String EMAIL_RECORDER = "emailRecorder";
+    public static final String MINI_PROFILER = "miniProfiler";
+    public static final String SYSTEM_MAINTENANCE = "systemMaintenance";
+
+    private static final Map<String, String> APPLIED_STATE = new ConcurrentHashMap<>();
+
+    private final Map<String, Setting> _settings = new LinkedHashMap<>();
+
+    public SiteStateConfigurer add(Setting setting)
+    {
+        _settings.put(setting.getKey(), setting);
+        return this;
+    }
+
+    @Override
+    public void configureSite()
+    {
+        List<Setting> concurrent = new ArrayList<>();
+        List<Setting> sequential = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (Setting setting : _settings.values())
+        {
+            if (setting.getFingerprint().equals(APPLIED_STATE.get(setting.getKey())))
+                skipped.add(setting.getKey());
+            else if (setting.isConcurrent())
+                concurrent.add(setting);
+            else
+                sequential.add(setting);
+        }
+
+        if (!skipped.isEmpty())
+            TestLogger.log("Site settings unchanged since previous test: " + skipped);
+
+        RuntimeException failure = null;
+        Map<Setting, Future<?>> futures = new LinkedHashMap<>();
+        ExecutorService executor = concurrent.isEmpty() ? null : Executors.newFixedThreadPool(concurrent.size(), r -> {
+            Thread thread = new Thread(r, "SiteStateConfigurer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            for (Setting setting : concurrent)
+            {
+                futures.put(setting, executor.submit(TestLogger.propagateContext(() -> {
+                    setting.apply();
+                    return null;
+                })));
+            }
+
+            for (Setting setting : sequential)
+            {
+                try
+                {
+                    setting.apply();
+                    APPLIED_STATE.put(setting.getKey(), setting.getFingerprint());
+                }
+                catch (Exception e)
+                {
+                    failure = handleFailure(setting, e, failure);
+                }
+            }
+
+            for (Map.Entry<Setting, Future<?>> entry : futures.entrySet())
+            {
+                Setting setting = entry.getKey();
+                try
+                {
+                    entry.getValue().get();
+                    APPLIED_STATE.put(setting.getKey(), setting.getFingerprint());
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    failure = handleFailure(setting, e, failure);
+                }
+                catch (ExecutionException e)
+                {
+                    failure = handleFailure(setting, e.getCause(), failure);
+                }
+            }
+        }
+        finally
+        {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+
+        if (failure != null)
+            throw failure;
+    }
+
+    private RuntimeException handleFailure(Setting setting, Throwable e, RuntimeException firstFailure)
+    {
+        APPLIED_STATE.remove(setting.getKey());
+        if (setting.isOptional())
+        {
+            TestLogger.log("Unable to apply optional site setting '" + setting.getKey() + "': " + e.getMessage());
+            return firstFailure;
+        }
+        if (firstFailure != null)
+            return firstFailure;
+        if (e instanceof RuntimeException re)
+            return re;
+        if (e instanceof Error err)
+            throw err;
+        return new RuntimeException("Failed to apply site setting: " + setting.getKey(), e);
+    }
+
+    /**
+     * Forget that the specified settings have been applied. The next test class will re-apply them.
+     */
+    public static void invalidate(String... keys)
+    {
+        for (String key : keys)
+            APPLIED_STATE.remove(key);
+    }
+
+    public static void invalidateAll()
+    {
+        APPLIED_STATE.clear();
+    }
+
+    /**
+     * Record that a setting was applied outside of this configurer (e.g. by {@link org.labkey.test.TestScrubber})
+     */
+    public static void markApplied(String key, Object value)
+    {
+        APPLIED_STATE.put(key, fingerprint(value));
+    }
+
+    private static String fingerprint(Object value)
+    {
+        return WebTestHelper.getBaseURL() + "|" + Objects.toString(value);
+    }
+
+    @FunctionalInterface
+    public interface Setter
+    {
+        void apply() throws Exception;
+    }
+
+    public static class Setting
+    {
+        private final String _key;
+        private final String _fingerprint;
+        private final Setter _setter;
+        private boolean _concurrent = false;
+        private boolean _optional = false;
+
+        /**
+         * @param key identifies the setting
+         * @param desiredValue value to be applied. Compared (via {@link Object#toString()}) with the previously applied value
+         * @param setter applies the setting to the server
+         */
+        public Setting(String key, Object desiredValue, Setter setter)
+        {
+            _key = key;
+            _fingerprint = fingerprint(desiredValue);
+            _setter = setter;
+        }
+
+        /**
+         * Apply this setting on a background thread, concurrently with other settings
+         */
+        public Setting concurrent()
+        {
+            _concurrent = true;
+            return this;
+        }
+
+        /**
+         * Log, rather than throw, failures to apply this setting
+         */
+        public Setting optional()
+        {
+            _optional = true;
+            return this;
+        }
+
+        public String getKey()
+        {
+            return _key;
+        }
+
+        public String getFingerprint()
+        {
+            return _fingerprint;
+        }
+
+        public boolean isConcurrent()
+        {
+            return _concurrent;
+        }
+
+        public boolean isOptional()
+        {
+            return _optional;
+        }
+
+        void apply() throws Exception
+        {
+            _setter.apply();
+        }
+    }
+}
@@ -16,6 +16,12 @@
 package org.labkey.test.util;
 
 import org.apache.commons.lang3.time.DateUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.jetbrains.annotations.Nullable;
 import org.junit.Assert;
 import org.labkey.api.collections.CaseInsensitiveLinkedHashMap;
@@ -34,45 +40,86 @@
 import org.labkey.test.TestFileUtils;
 import org.labkey.test.WebTestHelper;
 import org.labkey.test.params.FieldDefinition;
+import org.labkey.test.util.query.BulkRowLoader;
 import org.labkey.test.util.query.QueryApiHelper;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 
 /**
  * Use this class to generate random test data for a given column schema
+ * <br>
+ * Each generated column draws from its own {@link SplittableRandom}, derived from the generator's seed and the column
+ * name. Setting a seed with {@link #withSeed(long)} makes the generated data reproducible; otherwise a random seed is
+ * chosen (see {@link #getSeed()}).
+ * <br>
+ * Large datasets (e.g. for load tests) don't need to be held in memory: {@link #streamRows(long)},
+ * {@link #forEachGeneratedRow(long, Consumer)}, and {@link #writeGeneratedData(File, long)} generate rows in fixed-size
+ * partitions. Each partition is seeded independently, so partitions can be generated in parallel
+ * (see {@link #withParallelism(int)}) and the result doesn't depend on thread scheduling.
  */
 public class TestDataGenerator
 {
     // chose a Character random from this String
     private static final String ALPHANUMERIC_STRING = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvxyz";
+    private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm";
+    private static final DateTimeFormatter DEFAULT_DATE_FORMATTER = DateTimeFormatter.ofPattern(DEFAULT_DATE_FORMAT);
+    // Rows per independently seeded partition of streamed data
+    private static final int PARTITION_SIZE = 10_000;
+    // Partition index for the per-column random streams used by 'generateRows'
+    private static final long IN_MEMORY_PARTITION = -1;
 
     private final Map<String, PropertyDescriptor> _columns = new CaseInsensitiveLinkedHashMap<>();
-    private final Map<String, Function<List<Map<String, Object>>, Object>> _dataSuppliers = new CaseInsensitiveHashMap<>();
+    private final Map<String, ValueSupplier> _dataSuppliers = new CaseInsensitiveHashMap<>();
     private final Set<String> _autoGeneratedFields = Collections.newSetFromMap(new CaseInsensitiveHashMap<>());
     // Rows generated for next insert or TSV dump
     private final List<Map<String, Object>> _rows = new ArrayList<>();
     // All rows ever generated by this generator
     private final List<Map<String, Object>> _allGeneratedRows = new ArrayList<>();
+    // Per-column random streams for 'generateRows'. Successive calls continue the same streams.
+    private final Map<String, SplittableRandom> _columnRandoms = new CaseInsensitiveHashMap<>();
 
     private final String _schemaName;
     private final String _queryName;
     private final String _containerPath;
 
+    private long _seed = new SplittableRandom().nextLong();
+    private SplittableRandom _random = new SplittableRandom(_seed);
+    private Date _referenceDate = null;
+    private int _parallelism = 1;
+
 
     /**
      *  use TestDataGenerator to generate data to a specific fieldSet
@@ -116,6 +163,49 @@ public TestDataGenerator withColumns(List<? extends PropertyDescriptor> columns)
         return this;
     }
 
+    /**
+     * Seed all random data from this generator. Generators with the same seed, columns, and suppliers produce the same
+     * rows. Date columns are relative to the current date unless {@link #withReferenceDate(Date)} is also set.
+     * @param seed seed for all random values
+     * @return this
+     */
+    public TestDataGenerator withSeed(long seed)
+    {
+        _seed = seed;
+        _random = new SplittableRandom(seed);
+        _columnRandoms.clear();
+        return this;
+    }
+
+    /**
+     * @return the seed for this generator's random data. Log this to reproduce a failure with {@link #withSeed(long)}
+     */
+    public long getSeed()
+    {
+        return _seed;
+    }
+
+    /**
+     * Generate default date values in the 39 weeks before this date, rather than before the current date
+     */
+    public TestDataGenerator withReferenceDate(Date referenceDate)
+    {
+        _referenceDate = referenceDate;
+        return this;
+    }
+
+    /**
+     * Number of threads to use when generating streamed data. Data suppliers must be thread-safe to use more than one.
+     * Doesn't affect the generated values.
+     */
+    public TestDataGenerator withParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        _parallelism = parallelism;
+        return this;
+    }
+
     /**
      * Set fields that should be excluded from data generation. Such as intList key or sample name with nameExpression.
      * @param fieldNames fields to exclude
@@ -141,27 +231,43 @@ public TestDataGenerator withGeneratedRows(int desiredRowCount)
         return this;
     }
 
+    /**
+     * @param supplier receives the rows previously generated by this instance. Streamed rows aren't retained, so the
+     *                 supplier receives an empty list when generating streamed data.
+     */
     public TestDataGenerator addDataSupplier(String columnName, Function<List<Map<String, Object>>, Object> supplier)
     {
-        _dataSuppliers.put(columnName, supplier);
+        _dataSuppliers.put(columnName, (random, existingRows) -> supplier.apply(existingRows));
         return this;
     }
 
     public TestDataGenerator addDataSupplier(String columnName, Supplier<Object> supplier)
     {
-        _dataSuppliers.put(columnName, ignored -> supplier.get());
+        _dataSuppliers.put(columnName, (random, existingRows) -> supplier.get());
+        return this;
+    }
+
+    /**
+     * Add a supplier that draws its values from the column's random stream, so that they are reproducible from the
+     * generator's seed.
+     */
+    public TestDataGenerator addSeededDataSupplier(String columnName, Function<SplittableRandom, Object> supplier)
+    {
+        _dataSuppliers.put(columnName, (random, existingRows) -> supplier.apply(random));
         return this;
     }
 
     public TestDataGenerator addIntSupplier(String columnName, int min, int max)
     {
-        _dataSuppliers.put(columnName, ignored -> randomInt(min, max));
+        if (min >= max)
+            throw new IllegalArgumentException("min must be less than max");
+        _dataSuppliers.put(columnName, (random, existingRows) -> randomInt(random, min, max));
         return this;
     }
 
     public TestDataGenerator addStringSupplier(String columnName, int length)
     {
-        _dataSuppliers.put(columnName, ignored -> randomString(length));
+        _dataSuppliers.put(columnName, (random, existingRows) -> randomString(random, length));
         return this;
     }
 
@@ -236,53 +342,176 @@ public List<PropertyDescriptor> getColumns()
 
     public void generateRows(int numberOfRowsToGenerate)
     {
-        if (_columns.keySet().size() == 0)
-            throw new IllegalStateException("can't generate row data without column definitions");
+        List<ColumnPlan> plan = getGenerationPlan();
+        SplittableRandom[] randoms = new SplittableRandom[plan.size()];
+        for (int i = 0; i < randoms.length; i++)
+        {
+            randoms[i] = _columnRandoms.computeIfAbsent(plan.get(i).name(), name -> new SplittableRandom(getColumnSeed(name, IN_MEMORY_PARTITION)));
+        }
 
+        final List<Map<String, Object>> existingRows = Collections.unmodifiableList(_allGeneratedRows);
         for (int i= 0; i < numberOfRowsToGenerate; i++)
         {
-            final Map<String, Object> newRow = new CaseInsensitiveHashMap<>();
-            final List<Map<String, Object>> existingRows = Collections.unmodifiableList(_allGeneratedRows);
+            addCustomRow(generateRow(plan, randoms, existingRows));
+        }
+    }
+
+    /**
+     * Lazily generate rows without retaining them in this generator (they won't be included in {@link #getRows()} or
+     * {@link #getValidator()}). Only one partition of rows is held in memory at a time. The same seed and row count
+     * always produce the same rows, but they differ from the rows produced by {@link #generateRows(int)}.
+     * @param rowCount number of rows to generate
+     * @return a sequential stream of generated rows
+     */
+    public Stream<Map<String, Object>> streamRows(long rowCount)
+    {
+        List<ColumnPlan> plan = getGenerationPlan();
+        return LongStream.range(0, getPartitionCount(rowCount)).boxed()
+                .flatMap(partition -> generatePartition(plan, partition, rowCount).stream());
+    }
+
+    /**
+     * Generate the same rows as {@link #streamRows(long)}, using up to {@link #withParallelism(int)} threads.
+     * Rows are passed to the action in order, on the calling thread. Generation stays a bounded number of partitions
+     * ahead of the action, so memory use doesn't grow with the row count.
+     * @param rowCount number of rows to generate
+     * @param action receives each generated row
+     */
+    public void forEachGeneratedRow(long rowCount, Consumer<? super Map<String, Object>> action)
+    {
+        List<ColumnPlan> plan = getGenerationPlan();
+        long partitionCount = getPartitionCount(rowCount);
+        if (_parallelism == 1 || partitionCount <= 1)
+        {
+            for (long partition = 0; partition < partitionCount; partition++)
+            {
+                generatePartition(plan, partition, rowCount).forEach(action);
+            }
+            return;
+        }
 
-            for (Map.Entry<String, Function<List<Map<String, Object>>, Object>> dataSupplier : _dataSuppliers.entrySet())
+        ExecutorService executor = Executors.newFixedThreadPool(_parallelism, r -> {
+            Thread thread = new Thread(r, "TestDataGenerator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            Deque<Future<List<Map<String, Object>>>> pending = new ArrayDeque<>();
+            long nextPartition = 0;
+            while (nextPartition < partitionCount || !pending.isEmpty())
             {
-                Object value = dataSupplier.getValue().apply(existingRows);
-                if (value != null)
+                while (nextPartition < partitionCount && pending.size() < _parallelism * 2)
                 {
-                    newRow.put(dataSupplier.getKey(), value);
+                    long partition = nextPartition++;
+                    pending.add(executor.submit(TestLogger.propagateContext(() -> generatePartition(plan, partition, rowCount))));
                 }
+                pending.remove().get().forEach(action);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Failed to generate rows", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<ColumnPlan> getGenerationPlan()
+    {
+        if (_columns.keySet().size() == 0)
+            throw new IllegalStateException("can't generate row data without column definitions");
+
+        Date maxDate = _referenceDate != null ? _referenceDate : new Date();
+        Date minDate = DateUtils.addWeeks(maxDate, -39);
+
+        List<ColumnPlan> plan = new ArrayList<>();
+        for (Map.Entry<String, ValueSupplier> dataSupplier : _dataSuppliers.entrySet())
+        {
+            plan.add(new ColumnPlan(dataSupplier.getKey(), dataSupplier.getValue()));
+        }
+        for (String columnName : _columns.keySet())
+        {
+            if (_autoGeneratedFields.contains(columnName) || _dataSuppliers.containsKey(columnName))
+            {
+                continue;
             }
-            for (String columnName : _columns.keySet())
+            // Generate default values
+            plan.add(new ColumnPlan(columnName, getDefaultDataSupplier(_columns.get(columnName).getRangeURI(), minDate, maxDate)));
+        }
+        return plan;
+    }
+
+    private static long getPartitionCount(long rowCount)
+    {
+        if (rowCount < 0)
+            throw new IllegalArgumentException("Row count must not be negative: " + rowCount);
+        return (rowCount + PARTITION_SIZE - 1) / PARTITION_SIZE;
+    }
+
+    private List<Map<String, Object>> generatePartition(List<ColumnPlan> plan, long partition, long rowCount)
+    {
+        SplittableRandom[] randoms = new SplittableRandom[plan.size()];
+        for (int i = 0; i < randoms.length; i++)
+        {
+            randoms[i] = new SplittableRandom(getColumnSeed(plan.get(i).name(), partition));
+        }
+
+        int size = (int) Math.min(PARTITION_SIZE, rowCount - partition * PARTITION_SIZE);
+        List<Map<String, Object>> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            rows.add(generateRow(plan, randoms, Collections.emptyList()));
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> generateRow(List<ColumnPlan> plan, SplittableRandom[] randoms, List<Map<String, Object>> existingRows)
+    {
+        final Map<String, Object> newRow = new CaseInsensitiveHashMap<>();
+        for (int i = 0; i < randoms.length; i++)
+        {
+            ColumnPlan column = plan.get(i);
+            Object value = column.supplier().get(randoms[i], existingRows);
+            if (value != null)
             {
-                if (_autoGeneratedFields.contains(columnName) || _dataSuppliers.containsKey(columnName))
-                {
-                    continue;
-                }
-                // Generate default values
-                Object columnValue = getDefaultDataSupplier(_columns.get(columnName).getRangeURI()).apply(existingRows);
-                newRow.put(columnName, columnValue);
+                newRow.put(column.name(), value);
             }
-            addCustomRow(newRow);
         }
+        return newRow;
+    }
+
+    // Column names are case-insensitive
+    private long getColumnSeed(String columnName, long partition)
+    {
+        long seed = _seed ^ (columnName.toLowerCase().hashCode() * 0x9E3779B97F4A7C15L) ^ (partition * 0xC2B2AE3D27D4EB4FL);
+        return new SplittableRandom(seed).nextLong();
     }
 
-    private Function<List<Map<String, Object>>, Object> getDefaultDataSupplier(String columnType)
+    private static ValueSupplier getDefaultDataSupplier(String columnType, Date minDate, Date maxDate)
     {
         switch (columnType.substring(columnType.indexOf('#') + 1).toLowerCase())
         {
             case "string":
-                return __ -> randomString(20);
+                return (random, __) -> randomString(random, 20);
             case "int":
-                return __ -> randomInt(0, 20);
+                return (random, __) -> randomInt(random, 0, 20);
             case "float":
-                return __ -> randomFloat(0, 20);
+                return (random, __) -> randomFloat(random, 0, 20);
             case "double":
-                return __ -> randomDouble(0, 20);
+                return (random, __) -> randomDouble(random, 0, 20);
             case "boolean":
-                return __ -> randomBoolean();
+                return (random, __) -> random.nextBoolean();
             case "date":
             case "datetime":
-                return __ -> randomDateString(DateUtils.addWeeks(new Date(), -39), new Date());
+                return (random, __) -> randomDateString(random, minDate, maxDate);
             default:
                 throw new IllegalArgumentException("ColumnType " + columnType + " isn't implemented yet");
         }
@@ -290,11 +519,15 @@ private Function<List<Map<String, Object>>, Object> getDefaultDataSupplier(Strin
 
     public String randomString(int size)
     {
-        StringBuilder val = new StringBuilder();
+        return randomString(_random, size);
+    }
+
+    private static String randomString(SplittableRandom random, int size)
+    {
+        StringBuilder val = new StringBuilder(size);
         for (int i=0; i<size; i++)
         {
-            int randIndex = (int)(ALPHANUMERIC_STRING.length() * Math.random());
-            val.append(ALPHANUMERIC_STRING.charAt(randIndex));
+            val.append(ALPHANUMERIC_STRING.charAt(random.nextInt(ALPHANUMERIC_STRING.length())));
         }
         return val.toString();
     }
@@ -304,29 +537,47 @@ public int randomInt(int min, int max)
         if (min >= max)
             throw new IllegalArgumentException("min must be less than max");
 
-        Random r = new Random();
-        return r.nextInt((max - min) + 1) + min;
+        return randomInt(_random, min, max);
+    }
+
+    private static int randomInt(SplittableRandom random, int min, int max)
+    {
+        return random.nextInt(min, max + 1);
     }
 
     public float randomFloat(float min, float max)
     {
         if (min >= max)
             throw new IllegalArgumentException("min must be less than max");
-        Random r = new Random();
-        return  min + r.nextFloat() * (max - min);
+        return randomFloat(_random, min, max);
+    }
+
+    private static float randomFloat(SplittableRandom random, float min, float max)
+    {
+        return min + (float) random.nextDouble() * (max - min);
     }
 
     public Double randomDouble(double min, double max)
     {
         if (min >= max)
             throw new IllegalArgumentException("min must be less than max");
-        Random r = new Random();
-        return  min + r.nextDouble() * (max - min);
+        return randomDouble(_random, min, max);
+    }
+
+    private static double randomDouble(SplittableRandom random, double min, double max)
+    {
+        return min + random.nextDouble() * (max - min);
     }
 
     public String randomDateString(Date min, Date max)
     {
-        return randomDateString("yyyy-MM-dd HH:mm", min, max);
+        return randomDateString(_random, min, max);
+    }
+
+    private static String randomDateString(SplittableRandom random, Date min, Date max)
+    {
+        Instant instant = Instant.ofEpochMilli(random.nextLong(min.getTime(), max.getTime()));
+        return DEFAULT_DATE_FORMATTER.format(instant.atZone(ZoneId.systemDefault()));
     }
 
     /*
@@ -334,14 +585,14 @@ public String randomDateString(Date min, Date max)
      * */
     public String randomDateString(String dateFormat, Date min, Date max)
     {
-        long random = ThreadLocalRandom.current().nextLong(min.getTime(), max.getTime());
+        long random = _random.nextLong(min.getTime(), max.getTime());
         Date date = new Date(random);
         return new SimpleDateFormat(dateFormat).format(date);
     }
 
     public boolean randomBoolean()
     {
-        return ThreadLocalRandom.current().nextBoolean();
+        return _random.nextBoolean();
     }
 
     /**
@@ -350,25 +601,16 @@ public boolean randomBoolean()
      */
     public String writeTsvContents()
     {
-        StringBuilder builder = new StringBuilder();
-        List<String> fieldNames = new ArrayList<>(_columns.keySet());
-        fieldNames.removeAll(_autoGeneratedFields);
-
-        builder.append(String.join("\t", fieldNames));
-        builder.append("\n");
-
-        for (Map<String, Object> row : _rows)
+        StringWriter writer = new StringWriter();
+        try
         {
-            List<String> values = new ArrayList<>();
-            for (String name : fieldNames)
-            {
-                Object value = row.get(name);
-                values.add(value != null ? String.valueOf(value) : "");
-            }
-            builder.append(String.join("\t", values));
-            builder.append("\n");
+            writeDelimited(writer, '\t', _rows.stream());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e); // Not thrown by StringWriter
         }
-        return builder.toString();
+        return writer.toString();
     }
 
     /**
@@ -379,9 +621,15 @@ public String writeTsvContents()
      */
     public File writeData(String fileName)
     {
+        File file = new File(TestFileUtils.getTestTempDir(), fileName);
         try
         {
-            return TestFileUtils.writeTempFile(fileName, writeTsvContents());
+            Files.createDirectories(file.getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+            {
+                writeDelimited(writer, '\t', _rows.stream());
+            }
+            return file;
         }
         catch (IOException e)
         {
@@ -390,6 +638,148 @@ public File writeData(String fileName)
         }
     }
 
+    /**
+     * Generate rows straight to a file in the test temp dir. See {@link #writeGeneratedData(File, long)}
+     * @param fileName  the name of the file, e.g. 'loadTestData.tsv'
+     */
+    public File writeGeneratedData(String fileName, long rowCount) throws IOException
+    {
+        return writeGeneratedData(new File(TestFileUtils.getTestTempDir(), fileName), rowCount);
+    }
+
+    /**
+     * Generate rows straight to a file, without retaining them. Writes the same rows as {@link #streamRows(long)}.
+     * Format is based on the file extension: '.csv', '.xlsx', otherwise TSV.
+     * @param file destination file. Will be overwritten if it exists
+     * @param rowCount number of rows to generate
+     * @return the written file
+     */
+    public File writeGeneratedData(File file, long rowCount) throws IOException
+    {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".xlsx"))
+        {
+            writeXlsx(file, rowCount);
+        }
+        else
+        {
+            try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+            {
+                char delimiter = name.endsWith(".csv") ? ',' : '\t';
+                List<String> fieldNames = getFieldNames();
+                writeDelimited(writer, delimiter, null);
+                try
+                {
+                    forEachGeneratedRow(rowCount, row -> {
+                        try
+                        {
+                            writeDelimitedRow(writer, delimiter, fieldNames, row);
+                        }
+                        catch (IOException e)
+                        {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+                catch (UncheckedIOException e)
+                {
+                    throw e.getCause();
+                }
+            }
+        }
+        return file;
+    }
+
+    // Columns that are written to files
+    private List<String> getFieldNames()
+    {
+        List<String> fieldNames = new ArrayList<>(_columns.keySet());
+        fieldNames.removeAll(_autoGeneratedFields);
+        return fieldNames;
+    }
+
+    /**
+     * Write a header and, optionally, rows
+     */
+    private void writeDelimited(Writer writer, char delimiter, @Nullable Stream<Map<String, Object>> rows) throws IOException
+    {
+        List<String> fieldNames = getFieldNames();
+        writer.write(String.join(String.valueOf(delimiter), delimiter == ',' ? fieldNames.stream().map(TestDataGenerator::quoteCsv).toList() : fieldNames));
+        writer.write("\n");
+
+        if (rows != null)
+        {
+            for (Map<String, Object> row : (Iterable<Map<String, Object>>) rows::iterator)
+            {
+                writeDelimitedRow(writer, delimiter, fieldNames, row);
+            }
+        }
+    }
+
+    private static void writeDelimitedRow(Writer writer, char delimiter, List<String> fieldNames, Map<String, Object> row) throws IOException
+    {
+        for (int i = 0; i < fieldNames.size(); i++)
+        {
+            if (i > 0)
+                writer.write(delimiter);
+            Object value = row.get(fieldNames.get(i));
+            String text = value != null ? String.valueOf(value) : "";
+            writer.write(delimiter == ',' ? quoteCsv(text) : text);
+        }
+        writer.write("\n");
+    }
+
+    private static String quoteCsv(String value)
+    {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private void writeXlsx(File file, long rowCount) throws IOException
+    {
+        int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+        if (rowCount >= maxRows)
+            throw new IllegalArgumentException("Too many rows for an Excel sheet: " + rowCount + " (max " + (maxRows - 1) + ")");
+
+        List<String> fieldNames = getFieldNames();
+        // Only a window of rows is kept in memory; the rest are flushed to a temp file
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (workbook; OutputStream out = Files.newOutputStream(file.toPath()))
+        {
+            Sheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(getQueryName()));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < fieldNames.size(); i++)
+            {
+                header.createCell(i).setCellValue(fieldNames.get(i));
+            }
+
+            int[] rowIndex = {1};
+            forEachGeneratedRow(rowCount, row -> {
+                Row sheetRow = sheet.createRow(rowIndex[0]++);
+                for (int i = 0; i < fieldNames.size(); i++)
+                {
+                    Object value = row.get(fieldNames.get(i));
+                    if (value == null)
+                        continue;
+                    Cell cell = sheetRow.createCell(i);
+                    if (value instanceof Number number)
+                        cell.setCellValue(number.doubleValue());
+                    else if (value instanceof Boolean bool)
+                        cell.setCellValue(bool);
+                    else
+                        cell.setCellValue(String.valueOf(value));
+                }
+            });
+            workbook.write(out);
+        }
+        finally
+        {
+            workbook.dispose();
+        }
+    }
+
     /**
      * @deprecated Use {@link org.labkey.test.params.property.DomainProps#create(Connection, String)}
      */
@@ -447,6 +837,26 @@ public SaveRowsResponse insertRows(Connection cn, List<Map<String, Object>> rows
         return getQueryHelper(cn).insertRows(rows);
     }
 
+    /**
+     * Get a loader that inserts rows into this generator's query in concurrent chunks. Use this instead of
+     * {@link #insertRows(Connection, List)} for rows that are too numerous for a single request.
+     */
+    public BulkRowLoader getBulkLoader()
+    {
+        return new BulkRowLoader(WebTestHelper::getRemoteApiConnection, _containerPath, _schemaName, _queryName);
+    }
+
+    /**
+     * Generate rows and insert them in chunks, without retaining them. Inserted rows aren't collected either, so memory
+     * use doesn't depend on the row count. See {@link #streamRows(long)}
+     * @param rowCount number of rows to generate
+     * @return row count and chunk timing
+     */
+    public BulkRowLoader.Result insertGeneratedRows(long rowCount) throws IOException, CommandException
+    {
+        return getBulkLoader().setCollectRows(false).insertRows(streamRows(rowCount));
+    }
+
     /**
      * @deprecated Use {@link QueryApiHelper}
      */
@@ -541,4 +951,11 @@ public static boolean doesDomainExists(final String containerPath, final String
         return DomainUtils.doesDomainExist(containerPath, schema, queryName);
     }
 
+    @FunctionalInterface
+    private interface ValueSupplier
+    {
+        Object get(SplittableRandom random, List<Map<String, Object>> existingRows);
+    }
+
+    private record ColumnPlan(String name, ValueSupplier supplier) { }
 }
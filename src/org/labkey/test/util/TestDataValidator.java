@@ -15,16 +15,49 @@
  */
 package org.labkey.test.util;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Compares expected rows (usually from {@link TestDataGenerator}) to actual rows from the server or a data region.
+ * Expected rows are indexed on the comparison columns, so validation is linear in the number of rows.
+ * Column names are case-insensitive.
+ */
 public class TestDataValidator
 {
+    /**
+     * Trims values and treats null as empty
+     */
+    public static final Function<Object, String> DEFAULT_NORMALIZER = value -> value == null ? "" : value.toString().trim();
+    /**
+     * Like {@link #DEFAULT_NORMALIZER} but compares numbers by value (e.g. '5', '5.0', and 5.00d are equal)
+     */
+    public static final Function<Object, String> NUMERIC_NORMALIZER = value -> normalizeNumber(DEFAULT_NORMALIZER.apply(value));
+    private static final int MAX_REPORTED_ROWS = 20;
 
     private final List<Map<String, Object>> _rows;
+    private Function<Object, String> _normalizer = DEFAULT_NORMALIZER;
+
+    // Index for 'findRowsWithMatchingColumnValues', rebuilt if rows are added or different columns are ignored
+    private Set<String> _indexedIgnoreColumns;
+    private int _indexedRowCount = -1;
+    private List<String> _indexedColumns;
+    private Map<List<String>, List<Map<String, Object>>> _index;
 
     public TestDataValidator(List<Map<String, Object>> rows)
     {
@@ -36,6 +69,17 @@ public List<Map<String, Object>> getRows()
         return _rows;
     }
 
+    /**
+     * Set how values are normalized before they are compared by {@link #validate(Collection, List, List)}
+     * @param normalizer converts a value to its comparable form. E.g. {@link #NUMERIC_NORMALIZER}
+     * @return this
+     */
+    public TestDataValidator withNormalizer(Function<Object, String> normalizer)
+    {
+        _normalizer = normalizer;
+        return this;
+    }
+
     public String enumerateMissingRows(List<Map<String, String>> rowMaps)
     {
         return enumerateMissingRows(rowMaps, null);
@@ -63,39 +107,282 @@ public String enumerateMissingRows(List<Map<String, String>> rowMaps, List<Strin
         return error.toString();
     }
 
-    private String getCaseInvariantKey(String matchingKey, Map<String, Object> row)
-    {
-        return row.keySet().stream().filter(a-> a.toLowerCase().equals(matchingKey.toLowerCase()))
-                .findFirst().get();
-    }
-
     /**
         @param toValidate : a map of column/value pairs to match
         @return : a list of rows from this object's generated data with matching column/values
     * */
     public List<Map<String, Object>> findRowsWithMatchingColumnValues(Map<String, Object> toValidate, List<String> columnsToIgnore)
     {
-        List<Map<String, Object>> filteringList = new ArrayList<>();
-        filteringList.addAll(getRows());
-        List<String> columnNames = getColumnKeys(filteringList.get(0)); // these are the case-sensitive keys to the passed-in row
+        Set<String> ignoreColumns = toCaseInsensitiveSet(columnsToIgnore);
+        if (_index == null || _indexedRowCount != _rows.size() || !ignoreColumns.equals(_indexedIgnoreColumns))
+        {
+            // Compare on the columns of the first row, like the server response or data region would have
+            _indexedColumns = getColumnKeys(_rows.get(0)).stream().filter(column -> !ignoreColumns.contains(column)).toList();
+            _index = new HashMap<>();
+            for (Map<String, Object> row : _rows)
+            {
+                _index.computeIfAbsent(getExactKey(row, _indexedColumns), k -> new ArrayList<>()).add(row);
+            }
+            _indexedIgnoreColumns = ignoreColumns;
+            _indexedRowCount = _rows.size();
+        }
+
+        return new ArrayList<>(_index.getOrDefault(getExactKey(toValidate, _indexedColumns), Collections.emptyList()));
+    }
+
+    public List<String> getColumnKeys(Map<String, Object> row)
+    {
+        List<String> colNames = row.keySet().stream().collect(Collectors.toList());
+        return colNames;
+    }
+
+    /**
+     * Match actual rows to expected rows by key and compare their values in one pass.
+     * Every non-key column of each expected row is compared (except ignored columns); a column that is absent from an
+     * actual row is compared as null. Values are compared after normalizing (see {@link #withNormalizer(Function)}).
+     * If keys aren't unique, an actual row is matched to an expected row with identical values if there is one.
+     * @param actualRows rows to validate, e.g. from a 'selectRows' response or a data region
+     * @param keyColumns columns that identify a row
+     * @param ignoreColumns columns to skip when comparing values
+     * @return missing, extra, and mismatched rows
+     */
+    public ValidationResult validate(Collection<? extends Map<String, ?>> actualRows, List<String> keyColumns, @Nullable List<String> ignoreColumns)
+    {
+        if (keyColumns.isEmpty())
+            throw new IllegalArgumentException("At least one key column is required");
+
+        Set<String> keyColumnSet = toCaseInsensitiveSet(keyColumns);
+        Set<String> ignoreColumnSet = toCaseInsensitiveSet(ignoreColumns);
+
+        Map<List<String>, Deque<Map<String, Object>>> expectedByKey = new HashMap<>();
+        ColumnResolver expectedColumns = new ColumnResolver();
+        for (Map<String, Object> expected : _rows)
+        {
+            expectedByKey.computeIfAbsent(getNormalizedKey(expected, keyColumns, expectedColumns), k -> new ArrayDeque<>()).add(expected);
+        }
 
-        for (String columnName : columnNames)
+        List<Map<String, ?>> extra = new ArrayList<>();
+        List<Mismatch> mismatched = new ArrayList<>();
+        ColumnResolver actualColumns = new ColumnResolver();
+        for (Map<String, ?> actual : actualRows)
         {
-            if (columnsToIgnore!=null && columnsToIgnore.contains(columnName))      // todo; do this case-insensitively
+            List<String> key = getNormalizedKey(actual, keyColumns, actualColumns);
+            Deque<Map<String, Object>> candidates = expectedByKey.get(key);
+            if (candidates == null || candidates.isEmpty())
+            {
+                extra.add(actual);
                 continue;
+            }
 
-            String key = getCaseInvariantKey(columnName, toValidate);     // gets the corresponding case-sensitive key
-            String expectedValue = toValidate.get(key).toString();
+            Map<String, Object> bestMatch = null;
+            List<String> bestDifferences = null;
+            for (Map<String, Object> candidate : candidates)
+            {
+                List<String> differences = getDifferences(candidate, actual, keyColumnSet, ignoreColumnSet, actualColumns);
+                if (bestMatch == null || differences.isEmpty())
+                {
+                    bestMatch = candidate;
+                    bestDifferences = differences;
+                }
+                if (differences.isEmpty() || candidates.size() == 1)
+                    break;
+            }
+            candidates.remove(bestMatch);
 
-            filteringList =  filteringList.stream().filter(a -> a.get(columnName).toString().equals(expectedValue))    // filter smaller and smaller sets
-                    .collect(Collectors.toList());
+            if (!bestDifferences.isEmpty())
+                mismatched.add(new Mismatch(key, bestMatch, actual, bestDifferences));
         }
-        return filteringList;
+
+        List<Map<String, Object>> missing = new ArrayList<>();
+        for (Deque<Map<String, Object>> unmatched : expectedByKey.values())
+        {
+            missing.addAll(unmatched);
+        }
+
+        return new ValidationResult(keyColumns, missing, extra, mismatched);
     }
 
-    public List<String> getColumnKeys(Map<String, Object> row)
+    private List<String> getDifferences(Map<String, Object> expected, Map<String, ?> actual, Set<String> keyColumns, Set<String> ignoreColumns, ColumnResolver actualColumns)
     {
-        List<String> colNames = row.keySet().stream().collect(Collectors.toList());
-        return colNames;
+        List<String> differences = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : expected.entrySet())
+        {
+            String column = entry.getKey();
+            if (keyColumns.contains(column) || ignoreColumns.contains(column))
+                continue;
+
+            if (!_normalizer.apply(entry.getValue()).equals(_normalizer.apply(actualColumns.getValue(actual, column))))
+                differences.add(column);
+        }
+        return differences;
+    }
+
+    private List<String> getNormalizedKey(Map<String, ?> row, List<String> columns, ColumnResolver resolver)
+    {
+        List<String> key = new ArrayList<>(columns.size());
+        for (String column : columns)
+        {
+            key.add(_normalizer.apply(resolver.getValue(row, column)));
+        }
+        return key;
+    }
+
+    // Matches the original string comparison. Absent values are null, which never match a present value.
+    private static List<String> getExactKey(Map<String, ?> row, List<String> columns)
+    {
+        String[] key = new String[columns.size()];
+        for (int i = 0; i < key.length; i++)
+        {
+            Object value = getValue(row, columns.get(i));
+            key[i] = value == null ? null : value.toString();
+        }
+        return Arrays.asList(key);
+    }
+
+    private static Object getValue(Map<String, ?> row, String column)
+    {
+        Object value = row.get(column);
+        if (value != null || row.containsKey(column))
+            return value;
+
+        for (Map.Entry<String, ?> entry : row.entrySet())
+        {
+            if (column.equalsIgnoreCase(entry.getKey()))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Remembers the actual spelling of each column, since rows from the same source use the same column names
+     */
+    private static class ColumnResolver
+    {
+        private final Map<String, String> _columnNames = new HashMap<>();
+
+        Object getValue(Map<String, ?> row, String column)
+        {
+            String columnName = _columnNames.get(column);
+            if (columnName != null && row.containsKey(columnName))
+                return row.get(columnName);
+
+            for (String key : row.keySet())
+            {
+                if (column.equalsIgnoreCase(key))
+                {
+                    _columnNames.put(column, key);
+                    return row.get(key);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static Set<String> toCaseInsensitiveSet(@Nullable Collection<String> values)
+    {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (values != null)
+            set.addAll(values);
+        return set;
+    }
+
+    private static String normalizeNumber(String value)
+    {
+        if (value.isEmpty() || !(Character.isDigit(value.charAt(value.length() - 1)) || value.endsWith(".")))
+            return value;
+        if (isCanonicalInteger(value))
+            return value;
+        try
+        {
+            BigDecimal number = new BigDecimal(value);
+            return number.signum() == 0 ? "0" : number.stripTrailingZeros().toPlainString();
+        }
+        catch (NumberFormatException e)
+        {
+            return value;
+        }
+    }
+
+    // Avoid parsing the common case: digits with no leading zero
+    private static boolean isCanonicalInteger(String value)
+    {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == value.length() || (value.charAt(start) == '0' && value.length() > start + 1) || "-0".equals(value))
+            return false;
+        for (int i = start; i < value.length(); i++)
+        {
+            if (!Character.isDigit(value.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param key normalized key values
+     * @param columns columns with different values
+     */
+    public record Mismatch(List<String> key, Map<String, Object> expected, Map<String, ?> actual, List<String> columns)
+    {
+        @Override
+        public String toString()
+        {
+            return "Row " + key + " has unexpected values: " + columns.stream()
+                    .map(column -> column + " expected:[" + expected.get(column) + "] actual:[" + getValue(actual, column) + "]")
+                    .collect(Collectors.joining(", "));
+        }
+    }
+
+    /**
+     * @param missing expected rows with no matching actual row
+     * @param extra actual rows with no matching expected row
+     * @param mismatched rows with matching keys and different values
+     */
+    public record ValidationResult(List<String> keyColumns, List<Map<String, Object>> missing, List<? extends Map<String, ?>> extra, List<Mismatch> mismatched)
+    {
+        public boolean isValid()
+        {
+            return missing.isEmpty() && extra.isEmpty() && mismatched.isEmpty();
+        }
+
+        /**
+         * @return description of the first few problems of each kind, or an empty string if the rows matched
+         */
+        public String getErrorMessage()
+        {
+            if (isValid())
+                return "";
+
+            StringBuilder error = new StringBuilder();
+            appendErrors(error, "Missing", missing.stream().map(row -> getKeyString(row)).toList());
+            appendErrors(error, "Unexpected", extra.stream().map(row -> getKeyString(row)).toList());
+            appendErrors(error, "Mismatched", mismatched.stream().map(Mismatch::toString).toList());
+            return error.toString();
+        }
+
+        private String getKeyString(Map<String, ?> row)
+        {
+            return keyColumns.stream().map(column -> column + "=" + getValue(row, column)).collect(Collectors.joining(", ", "[", "]"));
+        }
+
+        private static void appendErrors(StringBuilder error, String kind, List<String> descriptions)
+        {
+            if (descriptions.isEmpty())
+                return;
+
+            error.append(kind).append(" rows: ").append(descriptions.size()).append("\n");
+            Iterator<String> iterator = descriptions.iterator();
+            for (int i = 0; i < MAX_REPORTED_ROWS && iterator.hasNext(); i++)
+            {
+                error.append("  ").append(iterator.next()).append("\n");
+            }
+            if (descriptions.size() > MAX_REPORTED_ROWS)
+                error.append("  ...\n");
+        }
+
+        @Override
+        public String toString()
+        {
+            return isValid() ? "All rows matched" : getErrorMessage();
+        }
     }
 }
@@ -22,6 +22,8 @@
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 public class TestLogger
@@ -32,38 +34,56 @@
     private static final int indentStep = 2;
     private static final int MAX_INDENT = 20;
 
-    private static int currentIndent = 0;
-    private static boolean suppressLogging = false;
-    private static String testLogContext = "";
+    /*
+     * Logging state belongs to the thread that is running a test. Threads inherit a copy of their parent's state, so the
+     * threads that JUnit uses to enforce timeouts log with the test's context. Tasks submitted to thread pools should be
+     * wrapped with propagateContext, since pool threads are reused.
+     */
+    private static final InheritableThreadLocal<LogState> STATE = new InheritableThreadLocal<>()
+    {
+        @Override
+        protected LogState initialValue()
+        {
+            return new LogState();
+        }
+
+        @Override
+        protected LogState childValue(LogState parentValue)
+        {
+            return parentValue.copy();
+        }
+    };
 
     public static void resetLogger()
     {
-        currentIndent = 0;
-        suppressLogging = false;
+        LogState state = STATE.get();
+        state.indent = 0;
+        state.suppressLogging = false;
         updateThreadContext();
     }
 
     public static void increaseIndent()
     {
-        currentIndent += indentStep;
+        STATE.get().indent += indentStep;
         updateThreadContext();
     }
 
     public static void decreaseIndent()
     {
-        if (currentIndent > 0)
-            currentIndent -= indentStep;
+        LogState state = STATE.get();
+        if (state.indent > 0)
+            state.indent -= indentStep;
         updateThreadContext();
     }
 
     public static void suppressLogging(boolean suppress)
     {
-        suppressLogging = suppress;
+        STATE.get().suppressLogging = suppress;
     }
 
     public static void setTestLogContext(String testLogContext)
     {
-        TestLogger.testLogContext = testLogContext;
+        STATE.get().testLogContext = testLogContext;
         updateThreadContext();
     }
 
@@ -72,7 +92,7 @@ public static Logger log()
     {
         updateThreadContext(); // Just to be safe
 
-        if (suppressLogging)
+        if (STATE.get().suppressLogging)
         {
             return NO_OP;
         }
@@ -84,8 +104,48 @@ public static Logger log()
 
     private static void updateThreadContext()
     {
-        ThreadContext.put("testLogContext", testLogContext);
-        ThreadContext.put("testLogIndent", StringUtils.repeat(' ', Math.min(currentIndent, MAX_INDENT)));
+        LogState state = STATE.get();
+        ThreadContext.put("testLogContext", state.testLogContext);
+        ThreadContext.put("testLogIndent", StringUtils.repeat(' ', Math.min(state.indent, MAX_INDENT)));
+    }
+
+    /**
+     * Wrap a task that will run on another thread so that it logs with the calling thread's test context and
+     * indentation. Changes that the task makes to the logging state don't affect the calling thread.
+     */
+    public static Runnable propagateContext(Runnable task)
+    {
+        ContextSnapshot snapshot = new ContextSnapshot();
+        return () -> {
+            ContextSnapshot previous = snapshot.install();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                previous.install();
+            }
+        };
+    }
+
+    /**
+     * @see #propagateContext(Runnable)
+     */
+    public static <T> Callable<T> propagateContext(Callable<T> task)
+    {
+        ContextSnapshot snapshot = new ContextSnapshot();
+        return () -> {
+            ContextSnapshot previous = snapshot.install();
+            try
+            {
+                return task.call();
+            }
+            finally
+            {
+                previous.install();
+            }
+        };
     }
 
     public static void debug(String message, Throwable t)
@@ -180,4 +240,39 @@ public static String formatElapsedTime(long milliseconds)
         elapsedStr.append(">");
         return elapsedStr.toString();
     }
+
+    private static class LogState
+    {
+        private int indent = 0;
+        private boolean suppressLogging = false;
+        private String testLogContext = "";
+
+        private LogState copy()
+        {
+            LogState copy = new LogState();
+            copy.indent = indent;
+            copy.suppressLogging = suppressLogging;
+            copy.testLogContext = testLogContext;
+            return copy;
+        }
+    }
+
+    private static class ContextSnapshot
+    {
+        private final LogState _state = STATE.get().copy();
+        private final Map<String, String> _threadContext = ThreadContext.getImmutableContext();
+
+        /**
+         * Make this the current thread's logging context
+         * @return the context that was replaced
+         */
+        private ContextSnapshot install()
+        {
+            ContextSnapshot previous = new ContextSnapshot();
+            STATE.set(_state.copy());
+            ThreadContext.clearMap();
+            ThreadContext.putAll(_threadContext);
+            return previous;
+        }
+    }
 }
@@ -21,6 +21,7 @@
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -31,6 +32,9 @@
     private Function<String, String> searchTransformer;
     private final Supplier<String> sourceSupplier;
     private String lastSearchedText = null;
+    // Transforming a large page source can cost more than searching it. Reuse the result while the source is unchanged.
+    private String cachedSource = null;
+    private Function<String, String> cachedSourceTransformer = null;
 
     public TextSearcher(final Supplier<String> sourceSupplier)
     {
@@ -90,8 +94,7 @@ public final void searchForTexts(TextHandler textHandler, List<String> texts)
         if (texts == null || texts.isEmpty())
             return;
 
-        String transformedSource = sourceTransformer.apply(sourceSupplier.get());
-        lastSearchedText = transformedSource;
+        String transformedSource = getTransformedSource();
 
         for (String text : texts)
         {
@@ -103,21 +106,63 @@ public final void searchForTexts(TextHandler textHandler, List<String> texts)
         }
     }
 
-    public List<String> getMissingTexts(List<String> texts)
+    /**
+     * Find the first occurrence of each text in a single pass over the transformed source.
+     * Texts that are empty after being transformed are skipped.
+     * @return the transformed texts and their positions in the transformed source (-1 if not found), in the same
+     * order as the texts
+     */
+    public List<TextMatch> findTexts(List<String> texts)
     {
-        final List<String> missingTexts = new ArrayList<>();
+        if (texts == null || texts.isEmpty())
+            return Collections.emptyList();
 
-        TextSearcher.TextHandler handler = (textSource, text) -> {
-            if (!textSource.contains(text))
-                missingTexts.add(text);
-            return true;
-        };
+        List<String> transformedTexts = new ArrayList<>();
+        for (String text : texts)
+        {
+            String transformedText = searchTransformer.apply(text);
+            if (!transformedText.isEmpty())
+                transformedTexts.add(transformedText);
+        }
 
-        searchForTexts(handler, texts);
+        String transformedSource = getTransformedSource();
+        if (transformedTexts.isEmpty())
+            return Collections.emptyList();
+
+        int[] positions = transformedSource == null
+                ? new int[transformedTexts.size()]
+                : new MultiPatternMatcher(transformedTexts).indexOf(transformedSource);
+        List<TextMatch> matches = new ArrayList<>(transformedTexts.size());
+        for (int i = 0; i < transformedTexts.size(); i++)
+        {
+            matches.add(new TextMatch(transformedTexts.get(i), transformedSource == null ? -1 : positions[i]));
+        }
+        return matches;
+    }
 
+    public List<String> getMissingTexts(List<String> texts)
+    {
+        final List<String> missingTexts = new ArrayList<>();
+        for (TextMatch match : findTexts(texts))
+        {
+            if (!match.isFound())
+                missingTexts.add(match.text());
+        }
         return missingTexts;
     }
 
+    private String getTransformedSource()
+    {
+        String source = sourceSupplier.get();
+        if (source == null || !source.equals(cachedSource) || sourceTransformer != cachedSourceTransformer)
+        {
+            lastSearchedText = sourceTransformer.apply(source);
+            cachedSource = source;
+            cachedSourceTransformer = sourceTransformer;
+        }
+        return lastSearchedText;
+    }
+
     /**
      * @return source text from the last search attempt
      */
@@ -132,6 +177,18 @@ public String getLastSearchedText()
         boolean handle(String textSource, String text);
     }
 
+    /**
+     * @param text transformed search text
+     * @param position first index of the text in the transformed source, or -1
+     */
+    public record TextMatch(String text, int position)
+    {
+        public boolean isFound()
+        {
+            return position >= 0;
+        }
+    }
+
     public static abstract class TextTransformers
     {
         public static final Function<String, String> ENCODE_HTML = BaseWebDriverTest::encodeText;
@@ -51,6 +51,7 @@ protected void doCreateProject(String projectName, String folderType)
     public void createProjectFromTemplate(String projectName, String templateFolder)
     {
         doCreateProject(projectName, "Create From Template Folder", templateFolder);
+        _metadataCache.invalidateContainer(projectName);
     }
 
     @LogMethod
@@ -301,6 +301,7 @@ public void deleteGroup(@LoggedParam String groupName, boolean failIfNotFound)
             deleteAllUsersFromGroup();
             _driver.click(Locator.xpath("//td/a/span[text()='Delete Empty Group']"));
             _driver.waitForElementToDisappear(Locator.css(".x4-grid-cell-first").withText(groupName), BaseWebDriverTest.WAIT_FOR_JAVASCRIPT);
+            PrincipalDirectory.get().invalidateAllGroups();
         }
     }
 
@@ -0,0 +1,224 @@
+package org.labkey.test.util;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.labkey.test.TestFileUtils;
+import org.labkey.test.TestProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms for WebDriver commands (findElement, click, executeScript, etc.), recorded by
+ * {@link org.labkey.test.aspects.WebDriverTimingAspect}. Each command is tracked overall, per test class, and per
+ * calling method. Histograms use power-of-two microsecond buckets, so recording is a few atomic increments.
+ * <br>
+ * Written to {@value #REPORT_FILE_NAME} in the gradle report directory at the end of a test run.
+ * Disable with 'webtest.webdriver.timing=false'.
+ */
+public class WebDriverCommandStats
+{
+    public static final String REPORT_FILE_NAME = "WebDriverTiming.json";
+
+    private static final boolean ENABLED = TestProperties.isWebDriverTimingEnabled();
+    private static final String NO_TEST = "(none)";
+
+    private static final Map<String, Histogram> BY_COMMAND = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, Histogram>> BY_TEST_CLASS = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, Histogram>> BY_CALLER = new ConcurrentHashMap<>();
+
+    private WebDriverCommandStats()
+    {
+    }
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * @param command WebDriver method name
+     * @param testClass simple name of the running test class, if any
+     * @param caller method that invoked the command (e.g. 'DataRegionTable.getRowIndex')
+     * @param elapsedNanos command duration
+     */
+    public static void record(String command, String testClass, String caller, long elapsedNanos)
+    {
+        long micros = elapsedNanos / 1000;
+        getHistogram(BY_COMMAND, command).record(micros);
+        getHistogram(BY_TEST_CLASS.computeIfAbsent(testClass == null ? NO_TEST : testClass, k -> new ConcurrentHashMap<>()), command).record(micros);
+        getHistogram(BY_CALLER.computeIfAbsent(caller, k -> new ConcurrentHashMap<>()), command).record(micros);
+    }
+
+    private static Histogram getHistogram(Map<String, Histogram> histograms, String command)
+    {
+        Histogram histogram = histograms.get(command);
+        return histogram != null ? histogram : histograms.computeIfAbsent(command, k -> new Histogram());
+    }
+
+    public static void reset()
+    {
+        BY_COMMAND.clear();
+        BY_TEST_CLASS.clear();
+        BY_CALLER.clear();
+    }
+
+    /**
+     * Write the report and log the commands that took the most total time
+     * @return report file or null if nothing was recorded
+     */
+    public static File writeReport()
+    {
+        if (BY_COMMAND.isEmpty())
+            return null;
+
+        File reportFile = new File(TestFileUtils.getGradleReportDir(), REPORT_FILE_NAME);
+        try
+        {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.writeString(reportFile.toPath(), toJson().toString(2), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            TestLogger.error("Failed to write WebDriver timing report: " + reportFile, e);
+            return null;
+        }
+        return reportFile;
+    }
+
+    /**
+     * @return commands sorted by total time, descending. Formatted for the time report
+     */
+    public static List<String> getSummary(int limit)
+    {
+        List<String> summary = new ArrayList<>();
+        BY_COMMAND.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Histogram> e) -> e.getValue().getTotalMicros()).reversed())
+                .limit(limit)
+                .forEach(e -> {
+                    Histogram h = e.getValue();
+                    summary.add(String.format("%-20s %8d calls %10.1f s total %8.1f ms p90",
+                            e.getKey(), h.getCount(), h.getTotalMicros() / 1_000_000.0, h.getPercentileMicros(0.9) / 1000.0));
+                });
+        return summary;
+    }
+
+    public static JSONObject toJson()
+    {
+        JSONObject json = new JSONObject();
+        json.put("bucketUpperBoundsMicros", Histogram.getBucketBounds());
+        json.put("commands", toJson(BY_COMMAND));
+        json.put("byTestClass", toNestedJson(BY_TEST_CLASS));
+        json.put("byCaller", toNestedJson(BY_CALLER));
+        return json;
+    }
+
+    private static JSONObject toNestedJson(Map<String, Map<String, Histogram>> histograms)
+    {
+        JSONObject json = new JSONObject();
+        new TreeMap<>(histograms).forEach((key, value) -> json.put(key, toJson(value)));
+        return json;
+    }
+
+    private static JSONObject toJson(Map<String, Histogram> histograms)
+    {
+        JSONObject json = new JSONObject();
+        new TreeMap<>(histograms).forEach((command, histogram) -> json.put(command, histogram.toJson()));
+        return json;
+    }
+
+    private static class Histogram
+    {
+        // Bucket i holds durations in [2^(i-1), 2^i) microseconds; the last bucket is unbounded
+        private static final int BUCKETS = 32;
+
+        private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder _count = new LongAdder();
+        private final LongAdder _totalMicros = new LongAdder();
+        private final AtomicLong _maxMicros = new AtomicLong();
+
+        void record(long micros)
+        {
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, micros)));
+            _buckets.incrementAndGet(bucket);
+            _count.increment();
+            _totalMicros.add(micros);
+            if (micros > _maxMicros.get())
+                _maxMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        long getCount()
+        {
+            return _count.sum();
+        }
+
+        long getTotalMicros()
+        {
+            return _totalMicros.sum();
+        }
+
+        /**
+         * @return upper bound of the bucket containing the requested percentile (capped at the max recorded value)
+         */
+        long getPercentileMicros(double percentile)
+        {
+            long count = getCount();
+            long threshold = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                seen += _buckets.get(i);
+                if (seen >= threshold && seen > 0)
+                    return Math.min(getUpperBound(i), _maxMicros.get());
+            }
+            return _maxMicros.get();
+        }
+
+        JSONObject toJson()
+        {
+            JSONObject json = new JSONObject();
+            long count = getCount();
+            json.put("count", count);
+            json.put("totalMs", getTotalMicros() / 1000.0);
+            json.put("meanMs", count == 0 ? 0 : getTotalMicros() / 1000.0 / count);
+            json.put("p50Ms", getPercentileMicros(0.5) / 1000.0);
+            json.put("p90Ms", getPercentileMicros(0.9) / 1000.0);
+            json.put("p99Ms", getPercentileMicros(0.99) / 1000.0);
+            json.put("maxMs", _maxMicros.get() / 1000.0);
+
+            // Trim empty trailing buckets
+            int last = BUCKETS - 1;
+            while (last > 0 && _buckets.get(last) == 0)
+                last--;
+            JSONArray buckets = new JSONArray();
+            for (int i = 0; i <= last; i++)
+                buckets.put(_buckets.get(i));
+            json.put("buckets", buckets);
+            return json;
+        }
+
+        static long getUpperBound(int bucket)
+        {
+            return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+        }
+
+        static JSONArray getBucketBounds()
+        {
+            JSONArray bounds = new JSONArray();
+            for (int i = 0; i < BUCKETS - 1; i++)
+                bounds.put(getUpperBound(i));
+            return bounds;
+        }
+    }
+}
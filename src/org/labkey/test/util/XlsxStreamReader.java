@@ -0,0 +1,281 @@
+package org.labkey.test.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.format.CellGeneralFormatter;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads '.xlsx' files one row at a time with the XSSF event (SAX) API, without loading the workbook. Memory use depends
+ * on the number of distinct strings in the file (the shared strings table) but not on the number of cells.
+ * Cell values are formatted like {@link ExcelHelper#getCellStringValue}: 'General' numbers as Excel displays them,
+ * dates with {@link ExcelHelper#getDateTimeFormat()}, and formulas as their cached results.
+ * <br>
+ * Rows are passed to a {@link RowHandler}, which can stop reading early. Rows with no cells aren't passed to the
+ * handler. Only OOXML workbooks are supported; use {@link ExcelHelper#create(File)} for '.xls' files.
+ */
+public class XlsxStreamReader
+{
+    private final File _file;
+
+    public XlsxStreamReader(File file)
+    {
+        _file = file;
+    }
+
+    public List<String> getSheetNames() throws IOException
+    {
+        List<String> sheetNames = new ArrayList<>();
+        readSheets(sheet -> {
+            sheetNames.add(sheet.name());
+            return true;
+        });
+        return sheetNames;
+    }
+
+    /**
+     * Pass each non-empty row of a sheet to the handler
+     * @param sheetIndex zero-based sheet index
+     * @param handler receives each row's cell values. Missing cells in the row are filled in with empty strings
+     */
+    public void forEachRow(int sheetIndex, RowHandler handler) throws IOException
+    {
+        int[] index = {0};
+        readSheets(sheet -> {
+            if (index[0]++ == sheetIndex)
+            {
+                sheet.read(handler);
+                return false;
+            }
+            return true;
+        });
+        if (index[0] <= sheetIndex)
+            throw new IllegalArgumentException("Sheet index out of range: " + sheetIndex);
+    }
+
+    /**
+     * Pass each data row of a sheet to the consumer as a map of column header to value. Assumes the first row contains
+     * column headers. Row maps have the same shape as {@link ExcelHelper#loadData(File)}'s.
+     */
+    public void forEachRowMap(int sheetIndex, Consumer<Map<String, String>> consumer) throws IOException
+    {
+        List<String> headers = new ArrayList<>();
+        forEachRow(sheetIndex, (rowIndex, values) -> {
+            if (headers.isEmpty())
+            {
+                headers.addAll(values);
+                return true;
+            }
+            consumer.accept(ExcelHelper.toRowMap(headers, values));
+            return true;
+        });
+    }
+
+    /**
+     * @see ExcelHelper#getColumnData(org.apache.poi.ss.usermodel.Sheet, int)
+     */
+    public List<String> getColumnData(int sheetIndex, int colIdx) throws IOException
+    {
+        List<String> columnData = new ArrayList<>();
+        forEachRow(sheetIndex, (rowIndex, values) -> {
+            while (columnData.size() < rowIndex)
+            {
+                columnData.add(""); // fill in empty rows
+            }
+            columnData.add(colIdx < values.size() ? values.get(colIdx) : "");
+            return true;
+        });
+        return columnData;
+    }
+
+    /**
+     * Reads only as much of the sheet as needed.
+     * @see ExcelHelper#getFirstNRows(org.apache.poi.ss.usermodel.Sheet, int)
+     */
+    public List<List<String>> getFirstNRows(int sheetIndex, int n) throws IOException
+    {
+        List<List<String>> rows = new ArrayList<>();
+        if (n <= 0)
+            return rows;
+
+        forEachRow(sheetIndex, (rowIndex, values) -> {
+            while (rows.size() < rowIndex && rows.size() < n)
+            {
+                rows.add(new ArrayList<>()); // fill in empty rows
+            }
+            if (rows.size() < n)
+                rows.add(values);
+            return rows.size() < n;
+        });
+
+        final int colCount = rows.get(0).size(); // Assume first row is column headers
+        for (int j = 1; j < rows.size(); j++)
+        {
+            List<String> dataRow = rows.get(j);
+            // Pad out empty columns
+            while (dataRow.size() < colCount)
+            {
+                dataRow.add("");
+            }
+        }
+        return rows;
+    }
+
+    private void readSheets(SheetVisitor visitor) throws IOException
+    {
+        try (OPCPackage pkg = OPCPackage.open(_file, PackageAccess.READ))
+        {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            boolean keepReading = true;
+            while (keepReading && sheets.hasNext())
+            {
+                try (InputStream sheetData = sheets.next())
+                {
+                    keepReading = visitor.visit(new SheetData(sheets.getSheetName(), sheetData, strings, styles));
+                }
+            }
+        }
+        catch (OpenXML4JException | SAXException e)
+        {
+            throw new IOException("Unable to read workbook: " + _file, e);
+        }
+    }
+
+    /**
+     * Receives rows from {@link #forEachRow(int, RowHandler)}
+     */
+    @FunctionalInterface
+    public interface RowHandler
+    {
+        /**
+         * @param rowIndex zero-based row index
+         * @param values cell values. Missing cells before the last non-empty cell are empty strings
+         * @return false to stop reading the sheet
+         */
+        boolean row(int rowIndex, List<String> values);
+    }
+
+    @FunctionalInterface
+    private interface SheetVisitor
+    {
+        boolean visit(SheetData sheet) throws IOException, SAXException;
+    }
+
+    private record SheetData(String name, InputStream data, ReadOnlySharedStringsTable strings, StylesTable styles)
+    {
+        void read(RowHandler handler) throws IOException, SAXException
+        {
+            XMLReader parser;
+            try
+            {
+                parser = XMLHelper.newXMLReader();
+            }
+            catch (ParserConfigurationException e)
+            {
+                throw new IOException(e);
+            }
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, new RowCollector(handler), new ValueFormatter(), false));
+            try
+            {
+                parser.parse(new InputSource(data));
+            }
+            catch (StopReading ignore)
+            {
+                // Handler is done
+            }
+        }
+    }
+
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler
+    {
+        private final RowHandler _handler;
+        private List<String> _values;
+
+        private RowCollector(RowHandler handler)
+        {
+            _handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum)
+        {
+            _values = new ArrayList<>();
+        }
+
+        @Override
+        public void endRow(int rowNum)
+        {
+            if (!_values.isEmpty() && !_handler.row(rowNum, _values))
+                throw new StopReading();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment)
+        {
+            int columnIndex = cellReference != null ? new CellReference(cellReference).getCol() : _values.size();
+            while (_values.size() < columnIndex)
+            {
+                _values.add(""); // fill in empty cells
+            }
+            _values.add(formattedValue == null ? "" : formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName)
+        {
+        }
+    }
+
+    /**
+     * Formats numbers and dates to match {@link ExcelHelper#getCellStringValue}
+     */
+    private static class ValueFormatter extends DataFormatter
+    {
+        private final SimpleDateFormat _dateFormat = new SimpleDateFormat(ExcelHelper.getDateTimeFormat().toPattern());
+        private final CellGeneralFormatter _generalFormatter = new CellGeneralFormatter();
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing)
+        {
+            if (formatString == null || "General".equals(formatString))
+                return _generalFormatter.format(value);
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value))
+                return _dateFormat.format(DateUtil.getJavaDate(value, use1904Windowing));
+            return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+        }
+    }
+
+    // Thrown from the SAX handler to stop parsing once the row handler is done
+    private static class StopReading extends RuntimeException
+    {
+        private StopReading()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -14,27 +14,85 @@
  * limitations under the License.
  */
 package org.labkey.test.util;
+import org.apache.commons.compress.archivers.EntryStreamOffsets;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.labkey.test.TestFileUtils;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+/**
+ * Creates and extracts zip archives, compressing or extracting entries in parallel.
+ * <ul>
+ *     <li>Files that are already compressed (e.g. '.zip', '.gz', '.xlsx', '.png') are stored rather than deflated
+ *     again</li>
+ *     <li>Stored entries are extracted by transferring bytes directly from the archive to the destination file</li>
+ *     <li>With {@link #setSkipIfUnchanged(boolean)}, an existing zip is reused if the content of the source hasn't
+ *     changed since it was created. A hash of the source is kept in the zip comment</li>
+ * </ul>
+ * Entries are written in the order that files are listed from the source directory, regardless of which thread compressed
+ * them.
+ */
 public class ZipUtil
 {
+    private static final String SOURCE_HASH_PREFIX = "source-sha256:";
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "jar", "xlsx", "docx", "pptx", "png", "jpg", "jpeg", "gif", "mp4");
+
     private final File _source;
+    private boolean _skipIfUnchanged = false;
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
 
     public ZipUtil(File source)
     {
         _source = source;
     }
 
+    /**
+     * Don't re-create the zip if it already exists and was created from identical source files. Files are still read
+     * to compute the hash, but not compressed or written.
+     */
+    public ZipUtil setSkipIfUnchanged(boolean skipIfUnchanged)
+    {
+        _skipIfUnchanged = skipIfUnchanged;
+        return this;
+    }
+
+    /**
+     * Maximum number of files to compress at once. Defaults to the number of processors.
+     */
+    public ZipUtil setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        _parallelism = parallelism;
+        return this;
+    }
+
     public File tempZip() throws IOException
     {
         TestFileUtils.getTestTempDir();
@@ -51,41 +109,275 @@ public File zipIt(File destZip) throws IOException
         List<File> fileList = generateFileList(_source, new ArrayList<>());
 
         TestLogger.log("Output to Zip : " + destZip.toString());
+        String sourceHash = null;
+        if (_skipIfUnchanged)
+        {
+            sourceHash = SOURCE_HASH_PREFIX + hashFiles(fileList);
+            if (destZip.isFile() && sourceHash.equals(getComment(destZip)))
+            {
+                TestLogger.log(String.format("Source is unchanged. Using existing zip with %d files", fileList.size()));
+                return destZip;
+            }
+        }
+
         Files.createDirectories(destZip.getParentFile().toPath());
         if (destZip.exists())
         {
             Files.delete(destZip.toPath());
         }
-        Files.createFile(destZip.toPath());
 
-        byte[] buffer = new byte[1024];
+        // ParallelScatterZipCreator compresses each entry to a temporary file, then copies them into the zip
+        ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(createExecutor(Math.min(fileList.size(), _parallelism)));
+        for (File file : fileList)
+        {
+            ZipArchiveEntry ze = generateZipEntry(file);
+            ze.setMethod(isCompressed(file) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            ze.setTime(file.lastModified());
+            zipCreator.addArchiveEntry(ze, () -> {
+                try
+                {
+                    return Files.newInputStream(file.toPath());
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(destZip))
+        {
+            if (sourceHash != null)
+                zos.setComment(sourceHash);
+            zipCreator.writeTo(zos);
 
-        try(
-                FileOutputStream fos = new FileOutputStream(destZip);
-                ZipOutputStream zos = new ZipOutputStream(fos)
-        )
+            TestLogger.log(String.format("Zipped %d files", fileList.size()));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
         {
-            for (File file : fileList)
+            throw unwrap(e);
+        }
+
+        return destZip;
+    }
+
+    /**
+     * Extract all entries of a zip file. Directories are created first, then files are extracted in parallel.
+     * @return extracted files (not including directories), in the order they appear in the zip
+     * @throws IOException if an entry would be extracted outside of the destination or a file already exists
+     */
+    public static List<File> unzip(File sourceZip, File destDir) throws IOException
+    {
+        String destPath = destDir.getCanonicalPath() + File.separator;
+        List<File> files = new ArrayList<>();
+        List<Callable<Void>> extractions = new ArrayList<>();
+
+        try (ZipFile zipFile = ZipFile.builder().setFile(sourceZip).get();
+             FileChannel archive = FileChannel.open(sourceZip.toPath(), StandardOpenOption.READ))
+        {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder()))
             {
-                ZipEntry ze = generateZipEntry(file);
-                zos.putNextEntry(ze);
-                try (FileInputStream in = new FileInputStream(file))
+                File destFile = new File(destDir, entry.getName());
+
+                if (!destFile.getCanonicalPath().startsWith(destPath))
                 {
+                    throw new IOException("Zip entry is outside of the target dir: " + entry.getName());
+                }
 
-                    int len;
-                    while ((len = in.read(buffer)) > 0)
+                if (entry.isDirectory())
+                {
+                    destFile.mkdirs();
+                    if (!destFile.isDirectory())
                     {
-                        zos.write(buffer, 0, len);
+                        throw new IOException("Failed to create directory: " + destFile.getName());
                     }
+                    continue;
+                }
+
+                destFile.getParentFile().mkdirs();
+                if (destFile.exists())
+                {
+                    throw new IOException("File already exists: " + destFile.getName());
                 }
+                if (!destFile.createNewFile())
+                {
+                    throw new IOException("Failed to extract file: " + destFile.getName());
+                }
+
+                long dataOffset = getDataOffset(zipFile, entry);
+                extractions.add(() -> {
+                    extractEntry(zipFile, archive, entry, dataOffset, destFile);
+                    return null;
+                });
+                files.add(destFile);
             }
 
-            zos.closeEntry();
+            runAll(extractions);
+        }
 
-            TestLogger.log(String.format("Zipped %d files", fileList.size()));
+        return files;
+    }
+
+    private static void extractEntry(ZipFile zipFile, FileChannel archive, ZipArchiveEntry entry, long dataOffset, File destFile) throws IOException
+    {
+        if (entry.getMethod() == ZipEntry.STORED && dataOffset != EntryStreamOffsets.OFFSET_UNKNOWN)
+        {
+            // Stored data is the file content; copy it without reading it into the JVM
+            try (FileChannel out = FileChannel.open(destFile.toPath(), StandardOpenOption.WRITE))
+            {
+                long position = dataOffset;
+                long remaining = entry.getCompressedSize();
+                while (remaining > 0)
+                {
+                    long transferred = archive.transferTo(position, remaining, out);
+                    if (transferred <= 0)
+                        throw new IOException("Truncated zip entry: " + entry.getName());
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+        }
+        else
+        {
+            try (InputStream is = zipFile.getInputStream(entry))
+            {
+                Files.copy(is, destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         }
+    }
 
-        return destZip;
+    /**
+     * Data offsets are read from local file headers, which aren't necessarily read until the entry is opened. Resolve
+     * them up front, so that worker threads only read entry data.
+     */
+    private static long getDataOffset(ZipFile zipFile, ZipArchiveEntry entry) throws IOException
+    {
+        if (entry.getDataOffset() == EntryStreamOffsets.OFFSET_UNKNOWN)
+        {
+            zipFile.getRawInputStream(entry).close();
+        }
+        return entry.getDataOffset();
+    }
+
+    private String hashFiles(List<File> fileList) throws IOException
+    {
+        List<Callable<byte[]>> hashes = new ArrayList<>();
+        for (File file : fileList)
+        {
+            hashes.add(() -> {
+                MessageDigest digest = newDigest();
+                try (InputStream in = Files.newInputStream(file.toPath()))
+                {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) != -1)
+                        digest.update(buffer, 0, read);
+                }
+                return digest.digest();
+            });
+        }
+        List<byte[]> fileHashes = runAll(hashes);
+
+        MessageDigest digest = newDigest();
+        for (int i = 0; i < fileList.size(); i++)
+        {
+            digest.update(generateZipEntry(fileList.get(i)).getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fileHashes.get(i));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String getComment(File zip)
+    {
+        try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(zip))
+        {
+            return zipFile.getComment();
+        }
+        catch (IOException e)
+        {
+            return null; // Not a valid zip; re-create it
+        }
+    }
+
+    private static boolean isCompressed(File file)
+    {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static ExecutorService createExecutor(int threadCount)
+    {
+        return Executors.newFixedThreadPool(Math.max(1, threadCount), r -> {
+            Thread thread = new Thread(r, "ZipUtil");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run tasks on up to one thread per processor
+     * @return results, in the same order as the tasks
+     */
+    private static <T> List<T> runAll(List<Callable<T>> tasks) throws IOException
+    {
+        ExecutorService executor = createExecutor(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+        try
+        {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks)
+            {
+                futures.add(executor.submit(TestLogger.propagateContext(task)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures)
+            {
+                results.add(future.get());
+            }
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw unwrap(e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e)
+    {
+        if (e.getCause() instanceof IOException ioException)
+            return ioException;
+        if (e.getCause() instanceof UncheckedIOException uncheckedIOException)
+            return uncheckedIOException.getCause();
+        if (e.getCause() instanceof RuntimeException runtimeException)
+            throw runtimeException;
+        throw new RuntimeException(e.getCause());
     }
 
     private List<File> generateFileList(File node, List<File> fileList)
@@ -108,11 +400,11 @@ private List<File> generateFileList(File node, List<File> fileList)
         return fileList;
     }
 
-    private ZipEntry generateZipEntry(File file)
+    private ZipArchiveEntry generateZipEntry(File file)
     {
         if (_source.equals(file)) // zipping a single file
-            return new ZipEntry(file.getName());
+            return new ZipArchiveEntry(file.getName());
         else
-            return new ZipEntry(_source.toURI().relativize(file.toURI()).getPath());
+            return new ZipArchiveEntry(_source.toURI().relativize(file.toURI()).getPath());
     }
-}
\ No newline at end of file
+}
@@ -16,6 +16,7 @@
 package org.labkey.test.util.core.webdav;
 
 import com.github.sardine.Sardine;
+import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.labkey.test.util.LogMethod;
 import org.labkey.test.util.LoggedParam;
@@ -27,10 +28,19 @@
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class WebDavUploadHelper
 {
@@ -38,6 +48,7 @@
     private final Sardine _sardine;
     private int _maxDepth = -1;
     private FileFilter _fileFilter = null;
+    private int _parallelism = 1;
 
     public WebDavUploadHelper(@NotNull WebDavUrlFactory urlFactory, @NotNull Sardine sardine)
     {
@@ -76,6 +87,35 @@ public void setFileFilter(FileFilter fileFilter)
         _fileFilter = fileFilter;
     }
 
+    /**
+     * Upload up to this many files at a time when uploading multiple files. Defaults to one file at a time.
+     *
+     * @param parallelism Maximum number of concurrent uploads
+     */
+    public void setParallelism(int parallelism)
+    {
+        _parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Upload a mix of files and directories to the root of the target. Directories are uploaded with their contents,
+     * subject to the max depth and file filter.
+     */
+    @LogMethod
+    public List<File> uploadFilesAndDirectories(@NotNull @LoggedParam List<File> files)
+    {
+        Map<File, String> filesToUpload = new LinkedHashMap<>();
+        for (File file : files)
+        {
+            if (file.isDirectory())
+                filesToUpload.putAll(getFilesToUpload(file.getName(), file, 0));
+            else
+                filesToUpload.put(file, "");
+        }
+        uploadFiles(filesToUpload);
+        return new ArrayList<>(filesToUpload.keySet());
+    }
+
     @LogMethod
     public List<File> uploadDirectoryContents(@NotNull @LoggedParam File directory)
     {
@@ -122,9 +162,81 @@ private Map<File, String> getFilesToUpload(String uploadPrefix, File directory,
 
     public void uploadFiles(@NotNull Map<File, String> filesByPrefix)
     {
-        for (File file : filesByPrefix.keySet())
+        if (_parallelism == 1 || filesByPrefix.size() < 2)
         {
-            uploadFile(file, filesByPrefix.get(file));
+            for (File file : filesByPrefix.keySet())
+            {
+                uploadFile(file, filesByPrefix.get(file));
+            }
+            return;
+        }
+
+        // Create target directories up front so that concurrent uploads don't race to create them
+        createDirectories(filesByPrefix.values());
+
+        int threadCount = Math.min(_parallelism, filesByPrefix.size());
+        TestLogger.log(String.format("Uploading %d files to %s (%d at a time)", filesByPrefix.size(), _urlFactory.getPath(""), threadCount));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "WebDavUpload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            Map<File, Future<?>> uploads = new LinkedHashMap<>();
+            for (Map.Entry<File, String> entry : filesByPrefix.entrySet())
+            {
+                uploads.put(entry.getKey(), executor.submit(TestLogger.propagateContext(() -> {
+                    put(entry.getKey(), entry.getValue());
+                    return null;
+                })));
+            }
+            for (Map.Entry<File, Future<?>> upload : uploads.entrySet())
+            {
+                try
+                {
+                    upload.getValue().get();
+                }
+                catch (ExecutionException e)
+                {
+                    throw new RuntimeException("Failed to upload file: " + upload.getKey().getAbsolutePath(), e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void createDirectories(Collection<String> prefixes)
+    {
+        Set<String> created = new HashSet<>();
+        for (String prefix : new TreeSet<>(prefixes))
+        {
+            String parent = "";
+            for (String dir : StringUtils.split(prefix, "/"))
+            {
+                String dirUrl = _urlFactory.getPath(parent, dir);
+                parent = parent + "/" + dir;
+                if (created.add(parent))
+                {
+                    try
+                    {
+                        if (!_sardine.exists(dirUrl))
+                            _sardine.createDirectory(dirUrl);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new RuntimeException("Failed to create directory: " + dirUrl, e);
+                    }
+                }
+            }
         }
     }
 
@@ -142,7 +254,7 @@ public void uploadFile(@NotNull File file, @NotNull String destPrefix)
         TestLogger.log("Uploading: " + message);
         try
         {
-            _sardine.put(putUrl, file, null);
+            put(file, destPrefix);
         }
         catch (IOException e)
         {
@@ -150,6 +262,12 @@ public void uploadFile(@NotNull File file, @NotNull String destPrefix)
         }
     }
 
+    // Doesn't log, so that it can be used from background threads
+    private void put(File file, String destPrefix) throws IOException
+    {
+        _sardine.put(_urlFactory.getPath(destPrefix, file.getName()), file, null);
+    }
+
     public String getUrl(String relativePath)
     {
         return _urlFactory.getPath(relativePath);
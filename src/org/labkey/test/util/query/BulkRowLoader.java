@@ -0,0 +1,363 @@
+package org.labkey.test.util.query;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.labkey.remoteapi.CommandException;
+import org.labkey.remoteapi.Connection;
+import org.labkey.remoteapi.query.InsertRowsCommand;
+import org.labkey.remoteapi.query.SaveRowsResponse;
+import org.labkey.test.util.TestLogger;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Inserts any number of rows into a query by splitting them into chunks and sending up to
+ * {@link #setMaxConcurrency(int)} chunks at a time. Rows are pulled from the source only as chunks are sent, so the
+ * source can be lazily generated (e.g. {@link org.labkey.test.util.TestDataGenerator#streamRows(long)}).
+ * <ul>
+ *     <li>Chunk size adapts to server latency, aiming for {@link #setTargetChunkMillis(long)} per request</li>
+ *     <li>Chunks that the server provably didn't process (connection failures, HTTP 429 or 503) are retried with
+ *     backoff. A chunk that times out halves the chunk size</li>
+ *     <li>Each worker thread uses its own connection from the supplier</li>
+ * </ul>
+ * Each chunk is a separate request (and transaction). If a chunk fails, rows from chunks that were already sent are not
+ * rolled back. Inserts aren't idempotent: a chunk that timed out, failed mid-response, or got HTTP 502 or 504 may have
+ * been inserted on the server anyway, so those failures are only retried if enabled with
+ * {@link #setRetryAmbiguousFailures(boolean)}.
+ */
+public class BulkRowLoader
+{
+    // The server rejected the request without processing it
+    private static final Set<Integer> REJECTED_STATUS_CODES = Set.of(429, 503);
+    // A proxy gave up on the request; the server may or may not have processed it
+    private static final Set<Integer> AMBIGUOUS_STATUS_CODES = Set.of(502, 504);
+    private static final long RETRY_BACKOFF_MS = 1_000;
+
+    private final Supplier<Connection> _connectionSupplier;
+    private final String _containerPath;
+    private final String _schema;
+    private final String _query;
+
+    private int _initialChunkSize = 500;
+    private int _minChunkSize = 50;
+    private int _maxChunkSize = 5_000;
+    private long _targetChunkMillis = 2_000;
+    private boolean _adaptiveChunkSize = true;
+    private int _maxConcurrency = 4;
+    private int _maxRetries = 2;
+    private boolean _retryAmbiguousFailures = false;
+    private int _timeout = 180_000;
+    private boolean _collectRows = true;
+
+    public BulkRowLoader(Supplier<Connection> connectionSupplier, String containerPath, String schema, String query)
+    {
+        _connectionSupplier = connectionSupplier;
+        _containerPath = containerPath;
+        _schema = schema;
+        _query = query;
+    }
+
+    /**
+     * Set the initial chunk size and the range that it can adapt within
+     */
+    public BulkRowLoader setChunkSize(int initial, int min, int max)
+    {
+        if (min < 1 || min > initial || initial > max)
+            throw new IllegalArgumentException(String.format("Invalid chunk sizes: initial=%d, min=%d, max=%d", initial, min, max));
+        _initialChunkSize = initial;
+        _minChunkSize = min;
+        _maxChunkSize = max;
+        return this;
+    }
+
+    /**
+     * Use a fixed chunk size
+     */
+    public BulkRowLoader setChunkSize(int chunkSize)
+    {
+        setChunkSize(chunkSize, chunkSize, chunkSize);
+        _adaptiveChunkSize = false;
+        return this;
+    }
+
+    /**
+     * Desired server time per chunk. Chunk size is adjusted toward this after each chunk completes.
+     */
+    public BulkRowLoader setTargetChunkMillis(long targetChunkMillis)
+    {
+        _targetChunkMillis = targetChunkMillis;
+        _adaptiveChunkSize = true;
+        return this;
+    }
+
+    public BulkRowLoader setMaxConcurrency(int maxConcurrency)
+    {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be positive: " + maxConcurrency);
+        _maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    public BulkRowLoader setMaxRetries(int maxRetries)
+    {
+        _maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Also retry chunks that failed in a way that doesn't show whether the server inserted them (read timeouts, other I/O
+     * errors, HTTP 502 or 504). This can insert duplicate rows, so only enable it for queries where that doesn't matter
+     * or can't happen (e.g. a unique key that rejects duplicates).
+     */
+    public BulkRowLoader setRetryAmbiguousFailures(boolean retryAmbiguousFailures)
+    {
+        _retryAmbiguousFailures = retryAmbiguousFailures;
+        return this;
+    }
+
+    /**
+     * Request timeout for each chunk
+     */
+    public BulkRowLoader setTimeout(int timeout)
+    {
+        _timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Whether to keep the inserted rows returned by the server. Disable for very large loads that don't need the
+     * inserted keys.
+     */
+    public BulkRowLoader setCollectRows(boolean collectRows)
+    {
+        _collectRows = collectRows;
+        return this;
+    }
+
+    public Result insertRows(List<Map<String, Object>> rows) throws IOException, CommandException
+    {
+        return insertRows(rows.iterator());
+    }
+
+    public Result insertRows(Stream<Map<String, Object>> rows) throws IOException, CommandException
+    {
+        try (rows)
+        {
+            return insertRows(rows.iterator());
+        }
+    }
+
+    /**
+     * Insert rows in chunks. Rows are returned in the same order they were read from the source.
+     * @param rows source of rows. Only read from the calling thread
+     * @return inserted rows and per-chunk timing
+     * @throws IOException from the first chunk that failed, after any retries
+     * @throws CommandException from the first chunk that failed, after any retries
+     */
+    public Result insertRows(Iterator<? extends Map<String, Object>> rows) throws IOException, CommandException
+    {
+        long start = System.nanoTime();
+        ChunkSizer chunkSizer = new ChunkSizer();
+        ThreadLocal<Connection> connections = ThreadLocal.withInitial(_connectionSupplier);
+        List<Map<String, Object>> insertedRows = new ArrayList<>();
+        List<ChunkTiming> chunks = new ArrayList<>();
+        long rowsInserted = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(_maxConcurrency, r -> {
+            Thread thread = new Thread(r, "BulkRowLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            // Keep a bounded number of chunks queued, so memory use doesn't depend on the size of the source
+            Deque<Future<ChunkResult>> pending = new ArrayDeque<>();
+            int chunkIndex = 0;
+            while (rows.hasNext() || !pending.isEmpty())
+            {
+                while (rows.hasNext() && pending.size() < _maxConcurrency * 2)
+                {
+                    int chunkSize = chunkSizer.get();
+                    List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+                    while (rows.hasNext() && chunk.size() < chunkSize)
+                    {
+                        chunk.add(rows.next());
+                    }
+                    int index = chunkIndex++;
+                    pending.add(executor.submit(TestLogger.propagateContext(() -> insertChunk(connections.get(), index, chunk, chunkSizer))));
+                }
+
+                ChunkResult result = pending.remove().get();
+                chunks.add(result.timing());
+                rowsInserted += result.rowsAffected();
+                insertedRows.addAll(result.rows());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            TestLogger.log(String.format("Bulk insert into %s.%s failed after inserting %d rows", _schema, _query, rowsInserted));
+            if (e.getCause() instanceof IOException ioException)
+                throw ioException;
+            if (e.getCause() instanceof CommandException commandException)
+                throw commandException;
+            throw new RuntimeException("Bulk insert failed", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        Result result = new Result(rowsInserted, Collections.unmodifiableList(insertedRows),
+                Collections.unmodifiableList(chunks), (System.nanoTime() - start) / 1_000_000);
+        TestLogger.log(result.toString());
+        return result;
+    }
+
+    private ChunkResult insertChunk(Connection connection, int index, List<Map<String, Object>> rows, ChunkSizer chunkSizer) throws IOException, CommandException, InterruptedException
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            InsertRowsCommand command = new InsertRowsCommand(_schema, _query);
+            command.setRows(rows);
+            command.setTimeout(_timeout);
+            long start = System.nanoTime();
+            try
+            {
+                SaveRowsResponse response = command.execute(connection, _containerPath);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                chunkSizer.recordSuccess(rows.size(), elapsedMillis);
+                Number rowsAffected = response.getRowsAffected();
+                return new ChunkResult(new ChunkTiming(index, rows.size(), attempt, elapsedMillis),
+                        rowsAffected != null ? rowsAffected.longValue() : rows.size(),
+                        _collectRows ? response.getRows() : List.of());
+            }
+            catch (IOException | CommandException e)
+            {
+                if (e instanceof SocketTimeoutException)
+                    chunkSizer.recordTimeout();
+                if (attempt > _maxRetries || !isRetryable(e))
+                    throw e;
+
+                long backoff = RETRY_BACKOFF_MS << (attempt - 1);
+                TestLogger.log(String.format("Retrying chunk %d (%d rows) in %d ms: %s", index, rows.size(), backoff, e.getMessage()));
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private boolean isRetryable(Exception e)
+    {
+        if (e instanceof CommandException commandException)
+        {
+            int status = commandException.getStatusCode();
+            return REJECTED_STATUS_CODES.contains(status) || (_retryAmbiguousFailures && AMBIGUOUS_STATUS_CODES.contains(status));
+        }
+        return isConnectFailure(e) || (_retryAmbiguousFailures && e instanceof IOException);
+    }
+
+    // The request never reached the server
+    private static boolean isConnectFailure(Exception e)
+    {
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException ||
+                e instanceof NoRouteToHostException || e instanceof UnknownHostException;
+    }
+
+    /**
+     * Tracks a smoothed server time per row and sizes chunks to take about the target time. Chunk size at most doubles
+     * between chunks, so that one fast chunk can't produce a chunk that times out.
+     */
+    private class ChunkSizer
+    {
+        private int _chunkSize = _initialChunkSize;
+        private double _millisPerRow = -1;
+
+        synchronized int get()
+        {
+            return _chunkSize;
+        }
+
+        synchronized void recordSuccess(int rowCount, long elapsedMillis)
+        {
+            if (!_adaptiveChunkSize)
+                return;
+
+            double observed = Math.max(elapsedMillis, 1) / (double) rowCount;
+            _millisPerRow = _millisPerRow < 0 ? observed : 0.7 * _millisPerRow + 0.3 * observed;
+            int desired = (int) Math.min(Integer.MAX_VALUE, _targetChunkMillis / _millisPerRow);
+            _chunkSize = Math.max(_minChunkSize, Math.min(Math.min(_maxChunkSize, _chunkSize * 2), desired));
+        }
+
+        synchronized void recordTimeout()
+        {
+            if (_adaptiveChunkSize)
+                _chunkSize = Math.max(_minChunkSize, _chunkSize / 2);
+        }
+    }
+
+    private record ChunkResult(ChunkTiming timing, long rowsAffected, List<Map<String, Object>> rows) { }
+
+    /**
+     * @param index position of the chunk in the source
+     * @param rowCount rows in the chunk
+     * @param attempts number of requests sent, including retries
+     * @param elapsedMillis duration of the successful request
+     */
+    public record ChunkTiming(int index, int rowCount, int attempts, long elapsedMillis) { }
+
+    /**
+     * @param rowsInserted total rows affected, as reported by the server
+     * @param rows inserted rows returned by the server (including generated keys), in source order. Empty if
+     *             {@link #setCollectRows(boolean)} is disabled
+     * @param chunks timing for each chunk, in source order
+     * @param elapsedMillis total time for the load
+     */
+    public record Result(long rowsInserted, List<Map<String, Object>> rows, List<ChunkTiming> chunks, long elapsedMillis)
+    {
+        /**
+         * @return values of the specified column (e.g. 'RowId' or 'Key') from the inserted rows
+         */
+        public List<Object> getKeys(String columnName)
+        {
+            return rows.stream().map(row -> row.get(columnName)).toList();
+        }
+
+        public int getRetryCount()
+        {
+            return chunks.stream().mapToInt(chunk -> chunk.attempts() - 1).sum();
+        }
+
+        public long getMaxChunkMillis()
+        {
+            return chunks.stream().mapToLong(ChunkTiming::elapsedMillis).max().orElse(0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("Inserted %d rows in %d chunks (%d retries) in %d ms. Slowest chunk: %d ms",
+                    rowsInserted, chunks.size(), getRetryCount(), elapsedMillis, getMaxChunkMillis());
+        }
+    }
+}
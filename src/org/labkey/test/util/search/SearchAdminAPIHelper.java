@@ -61,12 +61,19 @@ public static void waitForIndexerBackground()
     @LogMethod(quiet = true)
     public static void waitForIndexerBackground(int timeout)
     {
-        // Invoke a special server action that waits until all previous indexer tasks are complete, even wait for background indexing tasks to complete (e.g. deleteContainer)
+        executeWaitForIndexer(getWaitForIndexerBackgroundCommand(timeout));
+    }
+
+    /**
+     * Build a request that waits for all previous indexer tasks to complete, including background indexing tasks
+     * (e.g. deleteContainer). Response status will be 200 if the indexer became idle before the timeout.
+     */
+    public static SimplePostCommand getWaitForIndexerBackgroundCommand(int timeout)
+    {
         var cmd = new SimplePostCommand("search", "waitForIndexer");
         cmd.setTimeout(timeout);
         cmd.setParameters(Map.of("priority", "background"));
-
-        executeWaitForIndexer(cmd);
+        return cmd;
     }
 
     private static void executeWaitForIndexer(PostCommand cmd)